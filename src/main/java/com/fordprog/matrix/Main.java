@@ -3,22 +3,201 @@ package com.fordprog.matrix;
 import static java.util.stream.Collectors.joining;
 
 import com.fordprog.matrix.interpreter.Interpreter;
+import com.fordprog.matrix.interpreter.execution.stdlib.DixonSolver;
+import com.fordprog.matrix.interpreter.execution.stdlib.ExecutionStatistics;
+import com.fordprog.matrix.interpreter.execution.stdlib.HybridSolver;
+import com.fordprog.matrix.interpreter.execution.stdlib.MatrixOperation;
+import com.fordprog.matrix.interpreter.execution.stdlib.MinimalSizePivotStrategy;
+import com.fordprog.matrix.interpreter.execution.stdlib.MultiModularEngine;
+import com.fordprog.matrix.interpreter.execution.stdlib.PartialPivotStrategy;
+import com.fordprog.matrix.interpreter.execution.stdlib.ParallelExecution;
+import com.fordprog.matrix.interpreter.execution.stdlib.SparseLUSolver;
+import com.fordprog.matrix.interpreter.execution.stdlib.StrassenMultiplication;
+import com.fordprog.matrix.interpreter.type.Rational;
+import com.fordprog.matrix.interpreter.type.SparseMatrixStorage;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Arrays;
 
 public class Main {
 
+  private static boolean printStatistics = false;
+
   public static void main(String[] args) throws IOException {
 
     String path = "src/main/resources/input.mxc";
 
+    for (String arg : args) {
+      if (arg.startsWith("--")) {
+        applyOption(arg);
+      } else {
+        path = arg;
+      }
+    }
+
     String inputCode = Files.readAllLines(Paths.get(path)).stream().collect(joining("\n"));
 
     Interpreter interpreter = new Interpreter(inputCode);
 
     interpreter.interpret();
+
+    if (printStatistics) {
+      ExecutionStatistics.getInstance().report(System.err);
+    }
+  }
+
+  private static void applyOption(String arg) {
+    String[] option = arg.substring(2).split("=", 2);
+    String value = option.length > 1 ? option[1] : "";
+
+    switch (option[0]) {
+      case "normalization":
+        Rational.setNormalization(choice(arg, value, Rational.Normalization.class));
+        break;
+      case "reduction-threshold":
+        Rational.setReductionThreshold(positiveInt(arg, value));
+        break;
+      case "max-denominator":
+        Rational.setMaxDenominator(positiveLong(arg, value));
+        break;
+      case "conversion-tolerance":
+        Rational.setConversionTolerance(positiveDouble(arg, value));
+        break;
+      case "sparse-density":
+        SparseMatrixStorage.setDensityThreshold(fraction(arg, value));
+        break;
+      case "sparse-ordering":
+        if (!value.equals("rcm") && !value.equals("none")) {
+          throw usageError(arg, "rcm|none");
+        }
+
+        SparseLUSolver.getInstance().setOrderingEnabled(value.equals("rcm"));
+        break;
+      case "threads":
+        ParallelExecution.getInstance().setParallelism(positiveInt(arg, value));
+        break;
+      case "parallel-threshold":
+        ParallelExecution.getInstance().setThreshold(positiveInt(arg, value));
+        break;
+      case "multiply-tile":
+        MatrixOperation.getInstance().setMultiplyTileSize(positiveInt(arg, value));
+        break;
+      case "strassen-cutoff":
+        StrassenMultiplication.getInstance().setCutoff(positiveInt(arg, value));
+        break;
+      case "strassen-bits":
+        StrassenMultiplication.getInstance().setMinBitLength(positiveInt(arg, value));
+        break;
+      case "modular-threshold":
+        MultiModularEngine.getInstance().setThreshold(positiveInt(arg, value));
+        break;
+      case "dixon-threshold":
+        DixonSolver.getInstance().setThreshold(positiveInt(arg, value));
+        break;
+      case "pivot":
+        if (value.equals("partial")) {
+          MatrixOperation.getInstance().setPivotStrategy(new PartialPivotStrategy());
+        } else if (value.equals("size")) {
+          MatrixOperation.getInstance().setPivotStrategy(new MinimalSizePivotStrategy());
+        } else {
+          throw usageError(arg, "partial|size");
+        }
+        break;
+      case "numeric":
+        MatrixOperation.getInstance().setNumericMode(
+            choice(arg, value, MatrixOperation.NumericMode.class));
+        break;
+      case "solver":
+        if (!value.equals("exact") && !value.equals("hybrid")) {
+          throw usageError(arg, "exact|hybrid");
+        }
+
+        HybridSolver.getInstance().setEnabled(value.equals("hybrid"));
+        break;
+      case "condition-limit":
+        HybridSolver.getInstance().setConditionLimit(positiveDouble(arg, value));
+        break;
+      case "stats":
+        printStatistics = true;
+        break;
+      default:
+        System.err.println("Unknown option: " + arg);
+    }
+  }
+
+  private static int positiveInt(String arg, String value) {
+    long number = positiveLong(arg, value);
+
+    if (number > Integer.MAX_VALUE) {
+      throw usageError(arg, "a positive integer");
+    }
+
+    return (int) number;
+  }
+
+  private static long positiveLong(String arg, String value) {
+    try {
+      long number = Long.parseLong(value);
+
+      if (number > 0) {
+        return number;
+      }
+    } catch (NumberFormatException e) {
+      // Reported below
+    }
+
+    throw usageError(arg, "a positive integer");
+  }
+
+  private static double positiveDouble(String arg, String value) {
+    double number = parseDouble(arg, value, "a positive number");
+
+    if (!(number > 0.0) || Double.isInfinite(number)) {
+      throw usageError(arg, "a positive number");
+    }
+
+    return number;
+  }
+
+  private static double fraction(String arg, String value) {
+    double number = parseDouble(arg, value, "a number between 0 and 1");
+
+    if (!(number >= 0.0 && number <= 1.0)) {
+      throw usageError(arg, "a number between 0 and 1");
+    }
+
+    return number;
+  }
+
+  private static double parseDouble(String arg, String value, String expected) {
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      throw usageError(arg, expected);
+    }
+  }
+
+  // The enum constant named by value, case-insensitively
+  private static <E extends Enum<E>> E choice(String arg, String value, Class<E> type) {
+    for (E constant : type.getEnumConstants()) {
+      if (constant.name().equalsIgnoreCase(value)) {
+        return constant;
+      }
+    }
+
+    throw usageError(arg, Arrays.stream(type.getEnumConstants())
+        .map(constant -> constant.name().toLowerCase())
+        .collect(joining("|")));
+  }
+
+  // Exits, the exception is only thrown to end the caller
+  private static RuntimeException usageError(String arg, String expected) {
+    System.err.println("Invalid option: " + arg + ", expected " + expected);
+    System.exit(1);
+
+    return new IllegalStateException(arg);
   }
 
 }
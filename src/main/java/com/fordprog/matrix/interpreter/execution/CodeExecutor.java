@@ -55,7 +55,6 @@ import com.fordprog.matrix.interpreter.type.Rational;
 import com.fordprog.matrix.interpreter.type.Type;
 import com.fordprog.matrix.interpreter.type.UserDefinedFunction;
 
-import java.math.BigInteger;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
@@ -324,13 +323,19 @@ public class CodeExecutor implements FunctionVisitor {
         }
       }
       break;
-      case "^": {
-        Rational left = (Rational) leftSymbol.getValue(Type.RATIONAL);
-        Rational right = (Rational) rightSymbol.getValue(Type.RATIONAL);
+      case "^":
+        try {
+          Rational left = (Rational) leftSymbol.getValue(Type.RATIONAL);
+          Rational right = (Rational) rightSymbol.getValue(Type.RATIONAL);
 
-        targetSymbol.setValue(rationalOperation.power(left, right), Type.RATIONAL);
-      }
-      break;
+          targetSymbol.setValue(rationalOperation.power(left, right), Type.RATIONAL);
+        } catch (CannotConvertRuntimeError e) {
+          Matrix left = (Matrix) leftSymbol.getValue(Type.MATRIX);
+          Rational right = (Rational) rightSymbol.getValue(Type.RATIONAL);
+
+          targetSymbol.setValue(matrixOperation.power(left, right), Type.MATRIX);
+        }
+        break;
       case "#": {
         Matrix left = (Matrix) leftSymbol.getValue(Type.MATRIX);
         Matrix right = (Matrix) rightSymbol.getValue(Type.MATRIX);
@@ -535,44 +540,42 @@ public class CodeExecutor implements FunctionVisitor {
     Rational left = (Rational) leftSymbol.getValue(Type.RATIONAL);
     Rational right = (Rational) rightSymbol.getValue(Type.RATIONAL);
 
-    Rational result = null;
+    boolean result = false;
 
     switch (relationLogicExpressionContext.relation().getText()) {
       case "<": {
-        result = logicOperation.lessThan(left, right);
+        result = logicOperation.isLessThan(left, right);
       }
       break;
       case ">": {
-        result = logicOperation.greaterThan(left, right);
+        result = logicOperation.isGreaterThan(left, right);
       }
       break;
       case "<=": {
-        result = logicOperation.lessThanOrEqual(left, right);
+        result = logicOperation.isLessThanOrEqual(left, right);
       }
       break;
       case ">=": {
-        result = logicOperation.greaterThanOrEqual(left, right);
+        result = logicOperation.isGreaterThanOrEqual(left, right);
       }
       break;
       case "==": {
-        result = logicOperation.equalTo(left, right);
+        result = logicOperation.isEqualTo(left, right);
       }
       break;
       case "!=": {
-        result = logicOperation.equalTo(left, right).equals(Rational.TRUE) ?
-            Rational.FALSE : Rational.TRUE;
+        result = !logicOperation.isEqualTo(left, right);
       }
       break;
     }
 
-    logicSymbol.setValue(result, Type.RATIONAL);
+    logicSymbol.setValue(result ? Rational.TRUE : Rational.FALSE, Type.RATIONAL);
   }
 
   private boolean isZeroRationalSymbol(Symbol symbol) {
     Rational logicRational = (Rational) symbol.getValue(Type.RATIONAL);
 
-    return logicRational.getDenominator().compareTo(BigInteger.ZERO) == 0
-        || logicRational.getNumerator().compareTo(BigInteger.ZERO) == 0;
+    return logicRational.signum() == 0;
   }
 
 
@@ -0,0 +1,87 @@
+package com.fordprog.matrix.interpreter.execution.stdlib;
+
+import com.fordprog.matrix.interpreter.type.Rational;
+
+import java.math.BigInteger;
+
+/**
+ * Exact O(n^3) determinant using Bareiss' fraction-free elimination on the integer-scaled rows of
+ * the matrix. Every intermediate value is a minor of the integer matrix, so the divisions are exact
+ * and coefficient growth stays polynomial. The row updates of one elimination step are
+ * independent and run on the {@link ParallelExecution} pool for large matrices.
+ */
+public class BareissDeterminant {
+
+  private static BareissDeterminant instance = new BareissDeterminant();
+
+  private final ParallelExecution parallelExecution;
+
+  private BareissDeterminant() {
+    parallelExecution = ParallelExecution.getInstance();
+  }
+
+  public static BareissDeterminant getInstance() {
+    return instance;
+  }
+
+  public Rational determinant(Rational[][] value) {
+    RowScaledIntegerMatrix scaled = RowScaledIntegerMatrix.fromRationals(value);
+
+    BigInteger determinant = integerDeterminant(scaled.copyRows());
+
+    return new Rational(determinant, scaled.getScaleProduct());
+  }
+
+  /**
+   * Determinant of a square integer matrix, the rows are overwritten.
+   */
+  public BigInteger integerDeterminant(BigInteger[][] a) {
+    int n = a.length;
+    boolean negate = false;
+    BigInteger previousPivot = BigInteger.ONE;
+
+    for (int k = 0; k < n - 1; ++k) {
+      if (a[k][k].signum() == 0) {
+        int swap = k + 1;
+        while (swap < n && a[swap][k].signum() == 0) {
+          ++swap;
+        }
+
+        if (swap == n) {
+          return BigInteger.ZERO;
+        }
+
+        BigInteger[] temp = a[k];
+        a[k] = a[swap];
+        a[swap] = temp;
+
+        negate = !negate;
+      }
+
+      final int step = k;
+      final BigInteger divisor = previousPivot;
+
+      parallelExecution.forEach(k + 1, n, i -> eliminateRow(a, step, i, divisor));
+
+      previousPivot = a[k][k];
+    }
+
+    BigInteger determinant = a[n - 1][n - 1];
+
+    return negate ? determinant.negate() : determinant;
+  }
+
+  private void eliminateRow(BigInteger[][] a, int k, int i, BigInteger divisor) {
+    BigInteger[] pivotRow = a[k];
+    BigInteger[] row = a[i];
+    BigInteger pivot = pivotRow[k];
+    BigInteger factor = row[k];
+
+    for (int j = k + 1; j < row.length; ++j) {
+      row[j] = row[j].multiply(pivot).subtract(factor.multiply(pivotRow[j])).divide(divisor);
+    }
+
+    row[k] = BigInteger.ZERO;
+  }
+
+}
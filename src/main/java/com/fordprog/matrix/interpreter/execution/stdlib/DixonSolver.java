@@ -0,0 +1,249 @@
+package com.fordprog.matrix.interpreter.execution.stdlib;
+
+import com.fordprog.matrix.interpreter.error.runtime.InvalidOperationParameterRuntimeError;
+import com.fordprog.matrix.interpreter.type.Rational;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Dixon's p-adic lifting solver for exact linear systems. The system is scaled to integers and
+ * inverted once modulo a word-sized prime p; every lifting step then only needs a
+ * matrix-vector product modulo p and one exact integer residual update, producing the next p-adic
+ * digit of the solution. Rational reconstruction turns the p-adic approximation back into the
+ * exact rational solution, which is verified before it is returned.
+ */
+public class DixonSolver {
+
+  private static DixonSolver instance = new DixonSolver();
+
+  // Number of lifting steps between two reconstruction attempts
+  private static final int RECONSTRUCTION_INTERVAL = 8;
+
+  private final MultiModularEngine multiModularEngine;
+
+  private volatile int threshold;
+
+  private DixonSolver() {
+    multiModularEngine = MultiModularEngine.getInstance();
+    threshold = 40;
+  }
+
+  public static DixonSolver getInstance() {
+    return instance;
+  }
+
+  public int getThreshold() {
+    return threshold;
+  }
+
+  /**
+   * Sets the number of unknowns from which linear systems are solved by this solver.
+   */
+  public void setThreshold(int threshold) {
+    this.threshold = threshold;
+  }
+
+  public boolean isPreferred(int size) {
+    return size >= threshold;
+  }
+
+  /**
+   * Solves {@code a * x = b} for a square, non-singular {@code a}.
+   */
+  public Rational[] solve(Rational[][] a, Rational[] b) {
+    int n = a.length;
+
+    Rational[][] augmented = new Rational[n][n + 1];
+    for (int i = 0; i < n; ++i) {
+      System.arraycopy(a[i], 0, augmented[i], 0, n);
+      augmented[i][n] = b[i];
+    }
+
+    // Scaling whole rows of [A | b] keeps the solution
+    BigInteger[][] rows = RowScaledIntegerMatrix.fromRationals(augmented).getRows();
+
+    long[][] inverse = new long[n][n];
+    long p = findPrime(rows, inverse);
+
+    // Numerators and the denominator are bounded by the Hadamard bound of [A | b] (Cramer's rule)
+    int boundBits = multiModularEngine.hadamardBits(rows, n);
+    int maxSteps = (2 * boundBits + 2) / 30 + 1;
+
+    BigInteger prime = BigInteger.valueOf(p);
+    BigInteger modulus = BigInteger.ONE;
+    BigInteger[] residual = new BigInteger[n];
+    BigInteger[] approximation = new BigInteger[n];
+    long[] digit = new long[n];
+    long[] residualModulo = new long[n];
+
+    for (int i = 0; i < n; ++i) {
+      residual[i] = rows[i][n];
+      approximation[i] = BigInteger.ZERO;
+    }
+
+    for (int step = 1; step <= maxSteps; ++step) {
+      // digit = inverse(A) * residual (mod p)
+      for (int j = 0; j < n; ++j) {
+        residualModulo[j] = residual[j].mod(prime).longValue();
+      }
+
+      for (int i = 0; i < n; ++i) {
+        long sum = 0L;
+        for (int j = 0; j < n; ++j) {
+          sum = (sum + inverse[i][j] * residualModulo[j]) % p;
+        }
+        digit[i] = sum;
+      }
+
+      for (int i = 0; i < n; ++i) {
+        approximation[i] = approximation[i].add(modulus.multiply(BigInteger.valueOf(digit[i])));
+      }
+
+      // residual = (residual - A * digit) / p, the division is exact
+      for (int i = 0; i < n; ++i) {
+        BigInteger product = BigInteger.ZERO;
+        for (int j = 0; j < n; ++j) {
+          if (digit[j] != 0L) {
+            product = product.add(rows[i][j].multiply(BigInteger.valueOf(digit[j])));
+          }
+        }
+        residual[i] = residual[i].subtract(product).divide(prime);
+      }
+
+      modulus = modulus.multiply(prime);
+
+      if (step % RECONSTRUCTION_INTERVAL == 0 || step == maxSteps) {
+        Rational[] solution = reconstruct(approximation, modulus, rows);
+
+        if (solution != null) {
+          return solution;
+        }
+      }
+    }
+
+    throw new InvalidOperationParameterRuntimeError(
+        "Dixon lifting did not converge within the Hadamard bound");
+  }
+
+  // Returns a prime modulo which A is invertible and stores that inverse in inverse
+  private long findPrime(BigInteger[][] rows, long[][] inverse) {
+    int n = rows.length;
+
+    // A non-zero determinant is not divisible by all of these primes
+    long[] primes = multiModularEngine.primes(
+        multiModularEngine.primeCount(multiModularEngine.hadamardBits(rows, n)));
+
+    for (long p : primes) {
+      long[][] reduced = multiModularEngine.reduce(rows, p);
+      long[][] a = new long[n][];
+      for (int i = 0; i < n; ++i) {
+        a[i] = Arrays.copyOf(reduced[i], n);
+      }
+
+      if (multiModularEngine.invertModulo(a, p, inverse) != 0L) {
+        return p;
+      }
+    }
+
+    throw new InvalidOperationParameterRuntimeError("Matrix is singular or nearly singular");
+  }
+
+  /**
+   * Reconstructs the rational solution from its p-adic approximation. The entries share a growing
+   * common denominator, which keeps the later reconstructions cheap. Returns null if the
+   * approximation is not precise enough yet, detected by checking the solution exactly.
+   */
+  private Rational[] reconstruct(BigInteger[] approximation, BigInteger modulus,
+                                 BigInteger[][] rows) {
+    int n = approximation.length;
+    BigInteger[] numerators = new BigInteger[n];
+    BigInteger commonDenominator = BigInteger.ONE;
+
+    for (int i = 0; i < n; ++i) {
+      BigInteger scaled = approximation[i].multiply(commonDenominator).mod(modulus);
+      BigInteger[] fraction = rationalReconstruction(scaled, modulus);
+
+      if (fraction == null) {
+        return null;
+      }
+
+      // Entry i is fraction[0] / (fraction[1] * commonDenominator)
+      for (int j = 0; j < i; ++j) {
+        numerators[j] = numerators[j].multiply(fraction[1]);
+      }
+      numerators[i] = fraction[0];
+      commonDenominator = commonDenominator.multiply(fraction[1]);
+    }
+
+    // Check A * numerators == b * commonDenominator
+    for (int i = 0; i < n; ++i) {
+      BigInteger sum = BigInteger.ZERO;
+      for (int j = 0; j < n; ++j) {
+        sum = sum.add(rows[i][j].multiply(numerators[j]));
+      }
+
+      if (!sum.equals(rows[i][n].multiply(commonDenominator))) {
+        return null;
+      }
+    }
+
+    Rational[] solution = new Rational[n];
+    for (int i = 0; i < n; ++i) {
+      solution[i] = new Rational(numerators[i], commonDenominator);
+    }
+
+    return solution;
+  }
+
+  /**
+   * Finds {@code n / d} with {@code n = a * d (mod m)} and both {@code |n|} and {@code d} below
+   * {@code sqrt(m / 2)}, using the extended Euclidean algorithm. Returns null if none exists.
+   */
+  static BigInteger[] rationalReconstruction(BigInteger a, BigInteger m) {
+    BigInteger bound = squareRoot(m.shiftRight(1));
+
+    BigInteger r0 = m;
+    BigInteger r1 = a;
+    BigInteger t0 = BigInteger.ZERO;
+    BigInteger t1 = BigInteger.ONE;
+
+    while (r1.compareTo(bound) > 0) {
+      BigInteger[] division = r0.divideAndRemainder(r1);
+
+      BigInteger t = t0.subtract(division[0].multiply(t1));
+      t0 = t1;
+      t1 = t;
+
+      r0 = r1;
+      r1 = division[1];
+    }
+
+    if (t1.signum() == 0 || t1.abs().compareTo(bound) > 0 || !r1.gcd(t1).equals(BigInteger.ONE)) {
+      return null;
+    }
+
+    return t1.signum() < 0
+        ? new BigInteger[] {r1.negate(), t1.negate()} : new BigInteger[] {r1, t1};
+  }
+
+  // Floor of the square root, by Newton's iteration from above
+  private static BigInteger squareRoot(BigInteger value) {
+    if (value.compareTo(BigInteger.ONE) <= 0) {
+      return value;
+    }
+
+    BigInteger x = BigInteger.ONE.shiftLeft((value.bitLength() + 1) / 2);
+
+    while (true) {
+      BigInteger y = x.add(value.divide(x)).shiftRight(1);
+
+      if (y.compareTo(x) >= 0) {
+        return x;
+      }
+
+      x = y;
+    }
+  }
+
+}
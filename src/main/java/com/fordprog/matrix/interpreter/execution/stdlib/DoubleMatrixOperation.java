@@ -0,0 +1,271 @@
+package com.fordprog.matrix.interpreter.execution.stdlib;
+
+import com.fordprog.matrix.interpreter.error.runtime.InvalidOperationParameterRuntimeError;
+import com.fordprog.matrix.interpreter.type.DoubleMatrixStorage;
+import com.fordprog.matrix.interpreter.type.Matrix;
+import com.fordprog.matrix.interpreter.type.Rational;
+import org.apache.commons.math3.exception.MathIllegalArgumentException;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.CholeskyDecomposition;
+import org.apache.commons.math3.linear.DecompositionSolver;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.SingularValueDecomposition;
+
+/**
+ * Kernels of {@link MatrixOperation} for {@link MatrixOperation.NumericMode#DOUBLE}: operands are
+ * converted to doubles and results are {@link DoubleMatrixStorage} matrices. Argument checks are
+ * left to {@link MatrixOperation}.
+ */
+class DoubleMatrixOperation {
+
+  private static DoubleMatrixOperation instance = new DoubleMatrixOperation();
+
+  private DoubleMatrixOperation() {
+    // Do nothing...
+  }
+
+  static DoubleMatrixOperation getInstance() {
+    return instance;
+  }
+
+  Matrix add(Matrix a, Matrix b) {
+    double[] aValues = values(a);
+    double[] bValues = values(b);
+    double[] result = new double[aValues.length];
+
+    for (int i = 0; i < result.length; ++i) {
+      result[i] = aValues[i] + bValues[i];
+    }
+
+    return matrix(a.getRowNum(), a.getColumnNum(), result);
+  }
+
+  Matrix subtract(Matrix a, Matrix b) {
+    double[] aValues = values(a);
+    double[] bValues = values(b);
+    double[] result = new double[aValues.length];
+
+    for (int i = 0; i < result.length; ++i) {
+      result[i] = aValues[i] - bValues[i];
+    }
+
+    return matrix(a.getRowNum(), a.getColumnNum(), result);
+  }
+
+  Matrix multiply(Matrix a, Matrix b) {
+    int rowNum = a.getRowNum();
+    int innerNum = a.getColumnNum();
+    int columnNum = b.getColumnNum();
+
+    double[] aValues = values(a);
+    double[] bValues = values(b);
+    double[] result = new double[rowNum * columnNum];
+
+    // i-k-j order, the inner loop scans rows of b and of the result
+    ParallelExecution.getInstance().forEach(0, rowNum, r -> {
+      for (int i = 0; i < innerNum; ++i) {
+        double factor = aValues[r * innerNum + i];
+
+        if (factor == 0.0) {
+          continue;
+        }
+
+        for (int c = 0; c < columnNum; ++c) {
+          result[r * columnNum + c] += factor * bValues[i * columnNum + c];
+        }
+      }
+    });
+
+    return matrix(rowNum, columnNum, result);
+  }
+
+  Matrix scalarMultiply(Matrix a, Rational s) {
+    double scalar = s.getValue();
+    double[] aValues = values(a);
+    double[] result = new double[aValues.length];
+
+    for (int i = 0; i < result.length; ++i) {
+      result[i] = aValues[i] * scalar;
+    }
+
+    return matrix(a.getRowNum(), a.getColumnNum(), result);
+  }
+
+  Matrix transpose(Matrix a) {
+    int rowNum = a.getRowNum();
+    int columnNum = a.getColumnNum();
+
+    double[] aValues = values(a);
+    double[] result = new double[aValues.length];
+
+    for (int r = 0; r < rowNum; ++r) {
+      for (int c = 0; c < columnNum; ++c) {
+        result[c * rowNum + r] = aValues[r * columnNum + c];
+      }
+    }
+
+    return matrix(columnNum, rowNum, result);
+  }
+
+  Matrix inverse(Matrix m) {
+    return fromRealMatrix(solver(m).getInverse());
+  }
+
+  Rational determinant(Matrix m) {
+    CholeskyDecomposition cholesky = choleskyOrNull(m);
+    double determinant = cholesky != null ? cholesky.getDeterminant()
+        : decompose(m).getDeterminant();
+
+    if (Double.isInfinite(determinant) || Double.isNaN(determinant)) {
+      throw new InvalidOperationParameterRuntimeError("Determinant is out of the double range!");
+    }
+
+    return new Rational(determinant);
+  }
+
+  Rational rank(Matrix m) {
+    return new Rational(
+        new SingularValueDecomposition(new Array2DRowRealMatrix(m.getDoubleValue(), false))
+            .getRank(), 1L);
+  }
+
+  /**
+   * Returns {@code [U | c]} where U is the upper triangular factor and {@code L * c = P * v}.
+   */
+  Matrix gaussElimination(Matrix a, Matrix v) {
+    org.apache.commons.math3.linear.LUDecomposition decomposition = decompose(a);
+    requireNonSingular(decomposition);
+
+    int n = a.getRowNum();
+    double[][] lower = decomposition.getL().getData();
+    double[][] upper = decomposition.getU().getData();
+    int[] pivot = decomposition.getPivot();
+    double[] b = values(v);
+
+    double[] result = new double[n * (n + 1)];
+
+    for (int r = 0; r < n; ++r) {
+      double sum = b[pivot[r]];
+      for (int j = 0; j < r; ++j) {
+        sum -= lower[r][j] * result[j * (n + 1) + n];
+      }
+
+      System.arraycopy(upper[r], 0, result, r * (n + 1), n);
+      result[r * (n + 1) + n] = sum;
+    }
+
+    return matrix(n, n + 1, result);
+  }
+
+  /**
+   * Solves the system for every row of {@code b}, the rows of the result are the solutions.
+   */
+  Matrix solveLinearSystems(Matrix a, Matrix b) {
+    // Rows of b are right-hand sides, commons-math expects them as columns
+    RealMatrix solution = solver(a).solve(new Array2DRowRealMatrix(b.getDoubleValue(), false)
+        .transpose());
+
+    return fromRealMatrix(solution.transpose());
+  }
+
+  /**
+   * Returns the lower triangular L with {@code L * L^T = m}.
+   */
+  Matrix cholesky(Matrix m) {
+    CholeskyDecomposition cholesky = choleskyOrNull(m);
+
+    if (cholesky == null) {
+      throw new InvalidOperationParameterRuntimeError(
+          "Cholesky decomposition needs a symmetric positive definite matrix!");
+    }
+
+    return fromRealMatrix(cholesky.getL());
+  }
+
+  // Symmetric positive definite matrices are solved by Cholesky, at half the cost of LU
+  private DecompositionSolver solver(Matrix m) {
+    CholeskyDecomposition cholesky = choleskyOrNull(m);
+
+    if (cholesky != null) {
+      return cholesky.getSolver();
+    }
+
+    org.apache.commons.math3.linear.LUDecomposition decomposition = decompose(m);
+    requireNonSingular(decomposition);
+
+    return decomposition.getSolver();
+  }
+
+  private org.apache.commons.math3.linear.LUDecomposition decompose(Matrix m) {
+    if (m.getRowNum() != m.getColumnNum()) {
+      throw new InvalidOperationParameterRuntimeError(
+          "LU decomposition can only be calculated for square matrices!");
+    }
+
+    return new org.apache.commons.math3.linear.LUDecomposition(
+        new Array2DRowRealMatrix(m.getDoubleValue(), false));
+  }
+
+  // Symmetry is checked on the doubles themselves, the decomposition checks definiteness
+  private CholeskyDecomposition choleskyOrNull(Matrix m) {
+    if (m.getRowNum() != m.getColumnNum()) {
+      return null;
+    }
+
+    double[][] value = m.getDoubleValue();
+
+    for (int r = 0; r < value.length; ++r) {
+      for (int c = r + 1; c < value.length; ++c) {
+        if (value[r][c] != value[c][r]) {
+          return null;
+        }
+      }
+    }
+
+    try {
+      return new CholeskyDecomposition(new Array2DRowRealMatrix(value, false));
+    } catch (MathIllegalArgumentException e) {
+      // Not positive definite
+      return null;
+    }
+  }
+
+  private void requireNonSingular(org.apache.commons.math3.linear.LUDecomposition decomposition) {
+    if (!decomposition.getSolver().isNonSingular()) {
+      throw new InvalidOperationParameterRuntimeError("Matrix is singular or nearly singular");
+    }
+  }
+
+  private static double[] values(Matrix m) {
+    if (m.getStorage() instanceof DoubleMatrixStorage) {
+      return ((DoubleMatrixStorage) m.getStorage()).getValues();
+    }
+
+    double[] values = new double[m.getRowNum() * m.getColumnNum()];
+
+    for (int r = 0; r < m.getRowNum(); ++r) {
+      for (int c = 0; c < m.getColumnNum(); ++c) {
+        values[r * m.getColumnNum() + c] = m.getValueAtPosition(r, c).getValue();
+      }
+    }
+
+    return values;
+  }
+
+  private static Matrix fromRealMatrix(RealMatrix realMatrix) {
+    int rowNum = realMatrix.getRowDimension();
+    int columnNum = realMatrix.getColumnDimension();
+    double[] values = new double[rowNum * columnNum];
+
+    for (int r = 0; r < rowNum; ++r) {
+      System.arraycopy(realMatrix.getRow(r), 0, values, r * columnNum, columnNum);
+    }
+
+    return matrix(rowNum, columnNum, values);
+  }
+
+  private static Matrix matrix(int rowNum, int columnNum, double[] values) {
+    return new Matrix(new DoubleMatrixStorage(rowNum, columnNum, values));
+  }
+
+}
@@ -0,0 +1,62 @@
+package com.fordprog.matrix.interpreter.execution.stdlib;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named counters filled by the standard library during a run. Hot paths should look up their
+ * counters once and keep the returned {@link LongAdder}. Measurements that are not counts (e.g.
+ * residuals) are kept as the last recorded value.
+ */
+public class ExecutionStatistics {
+
+  private static ExecutionStatistics instance = new ExecutionStatistics();
+
+  private final Map<String, LongAdder> counters;
+
+  private final Map<String, Double> values;
+
+  private ExecutionStatistics() {
+    counters = new ConcurrentSkipListMap<>();
+    values = new ConcurrentSkipListMap<>();
+  }
+
+  public static ExecutionStatistics getInstance() {
+    return instance;
+  }
+
+  public LongAdder counter(String name) {
+    return counters.computeIfAbsent(name, key -> new LongAdder());
+  }
+
+  public long get(String name) {
+    LongAdder counter = counters.get(name);
+
+    return counter == null ? 0L : counter.sum();
+  }
+
+  public void record(String name, double value) {
+    values.put(name, value);
+  }
+
+  /**
+   * Returns the last value recorded under the name, NaN if there is none.
+   */
+  public double getValue(String name) {
+    return values.getOrDefault(name, Double.NaN);
+  }
+
+  public void reset() {
+    counters.values().forEach(LongAdder::reset);
+    values.clear();
+  }
+
+  public void report(PrintStream out) {
+    out.println("----------------- STATISTICS -------------------");
+    counters.forEach((name, counter) -> out.println(name + ": " + counter.sum()));
+    values.forEach((name, value) -> out.println(name + ": " + value));
+  }
+
+}
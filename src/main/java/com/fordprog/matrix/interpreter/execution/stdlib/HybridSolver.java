@@ -0,0 +1,215 @@
+package com.fordprog.matrix.interpreter.execution.stdlib;
+
+import com.fordprog.matrix.interpreter.type.Rational;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.DecompositionSolver;
+import org.apache.commons.math3.linear.LUDecomposition;
+import org.apache.commons.math3.linear.RealMatrix;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exact results at floating-point speed for well-conditioned problems: the problem is solved in
+ * double precision, every element of the answer is rounded to the simplest rational within its
+ * error bound, and the rounded answer is verified with exact arithmetic. Returns null whenever the
+ * answer cannot be certified, the caller then falls back to an exact algorithm.
+ */
+public class HybridSolver {
+
+  private static HybridSolver instance = new HybridSolver();
+
+  private final RationalOperation rationalOperation;
+
+  private final ParallelExecution parallelExecution;
+
+  private final LongAdder certified;
+
+  private final LongAdder rejected;
+
+  private volatile boolean enabled;
+
+  private volatile double conditionLimit;
+
+  private HybridSolver() {
+    rationalOperation = RationalOperation.getInstance();
+    parallelExecution = ParallelExecution.getInstance();
+    certified = ExecutionStatistics.getInstance().counter("hybrid.certified");
+    rejected = ExecutionStatistics.getInstance().counter("hybrid.rejected");
+    enabled = false;
+    conditionLimit = 1e8;
+  }
+
+  public static HybridSolver getInstance() {
+    return instance;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public double getConditionLimit() {
+    return conditionLimit;
+  }
+
+  /**
+   * Sets the estimated condition number above which the double solution is not even tried to be
+   * rounded.
+   */
+  public void setConditionLimit(double conditionLimit) {
+    this.conditionLimit = conditionLimit;
+  }
+
+  /**
+   * Solves {@code a * x = b} for a square {@code a}, returns null if the solution could not be
+   * certified.
+   */
+  public Rational[] solve(Rational[][] a, Rational[] b) {
+    int n = a.length;
+    RealMatrix matrix = toRealMatrix(a);
+    DecompositionSolver solver = new LUDecomposition(matrix).getSolver();
+    double condition = condition(matrix, solver);
+
+    if (condition > conditionLimit) {
+      rejected.increment();
+      return null;
+    }
+
+    double[] right = new double[n];
+    for (int i = 0; i < n; ++i) {
+      right[i] = b[i].getValue();
+    }
+
+    double[] approximation = solver.solve(new Array2DRowRealMatrix(right)).getColumn(0);
+    Rational[] x = new Rational[n];
+
+    for (int i = 0; i < n; ++i) {
+      x[i] = round(approximation[i], condition);
+
+      if (x[i] == null) {
+        rejected.increment();
+        return null;
+      }
+    }
+
+    boolean[] exact = {true};
+    parallelExecution.forEach(0, n, i -> {
+      if (exact[0] && !residualVanishes(a[i], x, b[i])) {
+        exact[0] = false;
+      }
+    });
+
+    if (!exact[0]) {
+      rejected.increment();
+      return null;
+    }
+
+    certified.increment();
+    return x;
+  }
+
+  /**
+   * Inverts a square {@code a}, returns null if the inverse could not be certified.
+   */
+  public Rational[][] inverse(Rational[][] a) {
+    int n = a.length;
+    RealMatrix matrix = toRealMatrix(a);
+    DecompositionSolver solver = new LUDecomposition(matrix).getSolver();
+    double condition = condition(matrix, solver);
+
+    if (condition > conditionLimit) {
+      rejected.increment();
+      return null;
+    }
+
+    double[][] approximation = solver.getInverse().getData();
+    Rational[][] x = new Rational[n][n];
+
+    for (int i = 0; i < n; ++i) {
+      for (int j = 0; j < n; ++j) {
+        x[i][j] = round(approximation[i][j], condition);
+
+        if (x[i][j] == null) {
+          rejected.increment();
+          return null;
+        }
+      }
+    }
+
+    // a * x = I, checked column by column
+    boolean[] exact = {true};
+    parallelExecution.forEach(0, n, j -> {
+      Rational[] column = new Rational[n];
+      for (int i = 0; i < n; ++i) {
+        column[i] = x[i][j];
+      }
+
+      for (int i = 0; i < n && exact[0]; ++i) {
+        if (!residualVanishes(a[i], column, new Rational(i == j ? 1L : 0L, 1L))) {
+          exact[0] = false;
+        }
+      }
+    });
+
+    if (!exact[0]) {
+      rejected.increment();
+      return null;
+    }
+
+    certified.increment();
+    return x;
+  }
+
+  // Estimated 1-norm condition number, infinite for (nearly) singular matrices
+  private double condition(RealMatrix matrix, DecompositionSolver solver) {
+    if (!solver.isNonSingular()) {
+      return Double.POSITIVE_INFINITY;
+    }
+
+    return matrix.getNorm() * solver.getInverse().getNorm();
+  }
+
+  private RealMatrix toRealMatrix(Rational[][] a) {
+    double[][] value = new double[a.length][a[0].length];
+
+    for (int i = 0; i < a.length; ++i) {
+      for (int j = 0; j < a[i].length; ++j) {
+        value[i][j] = a[i][j].getValue();
+      }
+    }
+
+    return new Array2DRowRealMatrix(value, false);
+  }
+
+  private boolean residualVanishes(Rational[] row, Rational[] x, Rational b) {
+    RationalAccumulator sum = new RationalAccumulator(b);
+
+    for (int j = 0; j < row.length; ++j) {
+      sum.subtractProduct(row[j], x[j]);
+    }
+
+    return sum.toRational().signum() == 0;
+  }
+
+  // Rounds to the first continued fraction convergent within the error bound of the double
+  // solution, which is about the condition number times the machine epsilon (relative)
+  private Rational round(double value, double errorFactor) {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      return null;
+    }
+
+    double tolerance = errorFactor * Math.ulp(1.0);
+    Rational rounded = Rational.approximate(value, Long.MAX_VALUE, tolerance);
+
+    if (Math.abs(value - rounded.getValue()) > tolerance * Math.max(1.0, Math.abs(value))) {
+      // No convergent with long parts is close enough
+      return null;
+    }
+
+    return rounded;
+  }
+
+}
@@ -0,0 +1,279 @@
+package com.fordprog.matrix.interpreter.execution.stdlib;
+
+import com.fordprog.matrix.interpreter.error.runtime.InvalidOperationParameterRuntimeError;
+import com.fordprog.matrix.interpreter.type.Matrix;
+import com.fordprog.matrix.interpreter.type.SparseMatrixStorage;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Double-precision iterative solvers for large systems, where a direct O(n^3) elimination is too
+ * expensive. The matrix is converted to compressed rows of doubles once, so the iterations only
+ * touch its non-zeros. Iteration stops when the relative residual {@code |b - a * x| / |b|}
+ * drops to the tolerance.
+ *
+ * <p>Every solve adds to the {@code iterative.*} counters of {@link ExecutionStatistics} and
+ * records the final relative residual.
+ */
+public class IterativeSolver {
+
+  public enum Method {
+
+    // Symmetric positive definite matrices
+    CONJUGATE_GRADIENT,
+
+    // Diagonally dominant matrices, every sweep only uses the previous iterate
+    JACOBI,
+
+    // Diagonally dominant or symmetric positive definite matrices, updates in place
+    GAUSS_SEIDEL
+
+  }
+
+  private static IterativeSolver instance = new IterativeSolver();
+
+  private final ParallelExecution parallelExecution;
+
+  private final ExecutionStatistics statistics;
+
+  private final LongAdder solves;
+
+  private final LongAdder iterations;
+
+  private final LongAdder failures;
+
+  private IterativeSolver() {
+    parallelExecution = ParallelExecution.getInstance();
+    statistics = ExecutionStatistics.getInstance();
+    solves = statistics.counter("iterative.solves");
+    iterations = statistics.counter("iterative.iterations");
+    failures = statistics.counter("iterative.failures");
+  }
+
+  public static IterativeSolver getInstance() {
+    return instance;
+  }
+
+  /**
+   * Solves {@code a * x = b} for a square {@code a}, throws if the tolerance is not reached within
+   * {@code maxIterations} iterations.
+   */
+  public double[] solve(Method method, Matrix a, double[] b, double tolerance,
+                        int maxIterations) {
+    Rows rows = new Rows(a);
+    double[] x = new double[b.length];
+    double bNorm = norm(b);
+
+    if (bNorm == 0.0) {
+      finish(0, 0.0);
+      return x;
+    }
+
+    if (method != Method.CONJUGATE_GRADIENT) {
+      rows.requireDiagonal();
+    }
+
+    double[] r = residual(rows, x, b);
+    double relativeResidual = norm(r) / bNorm;
+    int iteration = 0;
+
+    double[] p = r.clone();
+    double[] ap = new double[b.length];
+    double rr = dot(r, r);
+
+    while (relativeResidual > tolerance && iteration < maxIterations) {
+      switch (method) {
+        case CONJUGATE_GRADIENT:
+          rows.multiply(p, ap);
+
+          double pap = dot(p, ap);
+          if (!(pap > 0.0)) {
+            failures.increment();
+            throw new InvalidOperationParameterRuntimeError(
+                "Conjugate gradient needs a symmetric positive definite matrix!");
+          }
+
+          double alpha = rr / pap;
+          for (int i = 0; i < x.length; ++i) {
+            x[i] += alpha * p[i];
+            r[i] -= alpha * ap[i];
+          }
+
+          double nextRr = dot(r, r);
+          double beta = nextRr / rr;
+          for (int i = 0; i < p.length; ++i) {
+            p[i] = r[i] + beta * p[i];
+          }
+
+          rr = nextRr;
+          break;
+        case JACOBI:
+          x = rows.jacobiSweep(x, b);
+          r = residual(rows, x, b);
+          break;
+        default:
+          rows.gaussSeidelSweep(x, b);
+          r = residual(rows, x, b);
+          break;
+      }
+
+      relativeResidual = norm(r) / bNorm;
+      ++iteration;
+    }
+
+    finish(iteration, relativeResidual);
+
+    if (!(relativeResidual <= tolerance)) {
+      failures.increment();
+      throw new InvalidOperationParameterRuntimeError(
+          method + " did not converge in " + iteration + " iterations, relative residual: "
+              + relativeResidual);
+    }
+
+    return x;
+  }
+
+  private void finish(int iterationNum, double relativeResidual) {
+    solves.increment();
+    iterations.add(iterationNum);
+    statistics.record("iterative.residual", relativeResidual);
+  }
+
+  private double[] residual(Rows rows, double[] x, double[] b) {
+    double[] r = new double[b.length];
+
+    rows.multiply(x, r);
+    for (int i = 0; i < r.length; ++i) {
+      r[i] = b[i] - r[i];
+    }
+
+    return r;
+  }
+
+  private static double dot(double[] a, double[] b) {
+    double sum = 0.0;
+
+    for (int i = 0; i < a.length; ++i) {
+      sum += a[i] * b[i];
+    }
+
+    return sum;
+  }
+
+  private static double norm(double[] a) {
+    return Math.sqrt(dot(a, a));
+  }
+
+  // The non-zeros of a square matrix in compressed rows, with the diagonal kept separately
+  private class Rows {
+
+    private final int n;
+
+    private final int[] rowPointers;
+
+    private final int[] columns;
+
+    private final double[] values;
+
+    private final double[] diagonal;
+
+    private Rows(Matrix a) {
+      n = a.getRowNum();
+      diagonal = new double[n];
+
+      if (a.getStorage() instanceof SparseMatrixStorage) {
+        SparseMatrixStorage sparse = (SparseMatrixStorage) a.getStorage();
+
+        rowPointers = sparse.getRowPointers();
+        columns = sparse.getColumnIndices();
+        values = new double[sparse.getNonZeroCount()];
+
+        for (int i = 0; i < values.length; ++i) {
+          values[i] = sparse.getValues()[i].getValue();
+        }
+      } else {
+        double[][] dense = a.getDoubleValue();
+        int nonZeros = 0;
+
+        for (double[] row : dense) {
+          for (double element : row) {
+            nonZeros += element != 0.0 ? 1 : 0;
+          }
+        }
+
+        rowPointers = new int[n + 1];
+        columns = new int[nonZeros];
+        values = new double[nonZeros];
+
+        for (int r = 0, index = 0; r < n; ++r) {
+          for (int c = 0; c < n; ++c) {
+            if (dense[r][c] != 0.0) {
+              columns[index] = c;
+              values[index++] = dense[r][c];
+            }
+          }
+
+          rowPointers[r + 1] = index;
+        }
+      }
+
+      for (int r = 0; r < n; ++r) {
+        for (int p = rowPointers[r]; p < rowPointers[r + 1]; ++p) {
+          if (columns[p] == r) {
+            diagonal[r] = values[p];
+          }
+        }
+      }
+    }
+
+    private void requireDiagonal() {
+      for (double element : diagonal) {
+        if (element == 0.0) {
+          throw new InvalidOperationParameterRuntimeError(
+              "Jacobi and Gauss-Seidel iteration need a non-zero diagonal!");
+        }
+      }
+    }
+
+    // result = a * x
+    private void multiply(double[] x, double[] result) {
+      parallelExecution.forEach(0, n, r -> {
+        double sum = 0.0;
+
+        for (int p = rowPointers[r]; p < rowPointers[r + 1]; ++p) {
+          sum += values[p] * x[columns[p]];
+        }
+
+        result[r] = sum;
+      });
+    }
+
+    private double[] jacobiSweep(double[] x, double[] b) {
+      double[] next = new double[n];
+
+      parallelExecution.forEach(0, n, r -> next[r] = update(r, x, b));
+
+      return next;
+    }
+
+    private void gaussSeidelSweep(double[] x, double[] b) {
+      for (int r = 0; r < n; ++r) {
+        x[r] = update(r, x, b);
+      }
+    }
+
+    // Solves equation r for unknown r, the other unknowns taken from x
+    private double update(int r, double[] x, double[] b) {
+      double sum = b[r];
+
+      for (int p = rowPointers[r]; p < rowPointers[r + 1]; ++p) {
+        if (columns[p] != r) {
+          sum -= values[p] * x[columns[p]];
+        }
+      }
+
+      return sum / diagonal[r];
+    }
+  }
+
+}
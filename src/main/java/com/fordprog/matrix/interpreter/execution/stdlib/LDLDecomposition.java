@@ -0,0 +1,202 @@
+package com.fordprog.matrix.interpreter.execution.stdlib;
+
+import com.fordprog.matrix.interpreter.error.runtime.InvalidOperationParameterRuntimeError;
+import com.fordprog.matrix.interpreter.type.Matrix;
+import com.fordprog.matrix.interpreter.type.Rational;
+
+/**
+ * Exact symmetric factorization without pivoting: {@code A = L * D * L^T}, where L is unit lower
+ * triangular and D is diagonal. Unlike Cholesky it needs no square roots, so it stays rational.
+ * Only the lower triangle is stored, row {@code i} holds {@code L[i][0..i-1]} followed by
+ * {@code D[i]}, which is half the memory and half the arithmetic of {@link LUDecomposition}.
+ *
+ * <p>Every symmetric definite matrix has this factorization. Indefinite ones may meet a zero pivot
+ * with non-zeros below it, then {@link #decompose(Matrix)} gives up and LU has to pivot.
+ */
+public class LDLDecomposition {
+
+  private static final RationalOperation rationalOperation = RationalOperation.getInstance();
+
+  private final Rational[][] lower;
+
+  private final boolean singular;
+
+  private LDLDecomposition(Rational[][] lower, boolean singular) {
+    this.lower = lower;
+    this.singular = singular;
+  }
+
+  /**
+   * Factors a symmetric matrix, only its lower triangle is read. Returns null if a pivot is zero
+   * but the rest of its column is not.
+   */
+  public static LDLDecomposition decompose(Matrix m) {
+    return decompose(m, null);
+  }
+
+  /**
+   * Factors a symmetric matrix into a non-singular factorization. Returns null as soon as a pivot
+   * is at most {@code minPivot} in magnitude, before the remaining rows are eliminated.
+   */
+  public static LDLDecomposition decomposeNonSingular(Matrix m, Rational minPivot) {
+    return decompose(m, minPivot);
+  }
+
+  // A null minPivot accepts zero pivots above a zero column
+  private static LDLDecomposition decompose(Matrix m, Rational minPivot) {
+    if (!m.getStructure().isSymmetric()) {
+      throw new InvalidOperationParameterRuntimeError(
+          "LDL^T decomposition can only be calculated for symmetric matrices!");
+    }
+
+    int n = m.getRowNum();
+    Rational[][] lower = new Rational[n][];
+    // Row i of L * D, kept to reuse L[i][k] * D[k] in every element of the row
+    Rational[] scaled = new Rational[n];
+    RationalAccumulator sum = new RationalAccumulator();
+    boolean singular = false;
+
+    for (int i = 0; i < n; ++i) {
+      Rational[] row = new Rational[i + 1];
+      lower[i] = row;
+
+      for (int j = 0; j <= i; ++j) {
+        sum.reset().add(m.getValueAtPosition(i, j));
+        for (int k = 0; k < j; ++k) {
+          sum.subtractProduct(scaled[k], lower[j][k]);
+        }
+
+        Rational element = sum.toRational();
+
+        if (j == i) {
+          if (minPivot != null
+              && LogicOperation.getInstance().compareMagnitude(element, minPivot) <= 0) {
+            return null;
+          }
+
+          row[i] = element;
+        } else if (lower[j][j].signum() != 0) {
+          scaled[j] = element;
+          row[j] = rationalOperation.divide(element, lower[j][j]);
+        } else if (element.signum() == 0) {
+          // Zero column below a zero pivot, nothing to eliminate
+          scaled[j] = element;
+          row[j] = element;
+        } else {
+          return null;
+        }
+      }
+
+      singular |= row[i].signum() == 0;
+    }
+
+    return new LDLDecomposition(lower, singular);
+  }
+
+  /**
+   * Returns L with D on its diagonal and explicit zeros above it.
+   */
+  public Matrix toMatrix() {
+    int n = lower.length;
+    Rational[][] value = new Rational[n][n];
+    Rational zero = new Rational(0L, 1L);
+
+    for (int i = 0; i < n; ++i) {
+      System.arraycopy(lower[i], 0, value[i], 0, i + 1);
+      for (int j = i + 1; j < n; ++j) {
+        value[i][j] = zero;
+      }
+    }
+
+    return new Matrix(value);
+  }
+
+  public int getSize() {
+    return lower.length;
+  }
+
+  public boolean isSingular() {
+    return singular;
+  }
+
+  /**
+   * Returns {@code D[i]}.
+   */
+  public Rational getPivot(int i) {
+    return lower[i][i];
+  }
+
+  public Rational determinant() {
+    Rational determinant = new Rational(1L, 1L);
+
+    for (int i = 0; i < lower.length && determinant.signum() != 0; ++i) {
+      determinant = rationalOperation.multiply(determinant, lower[i][i]);
+    }
+
+    return determinant;
+  }
+
+  /**
+   * Solves {@code A * x = b} with a forward substitution on L, a division by D and a back
+   * substitution on L^T.
+   */
+  public Rational[] solve(Rational[] b) {
+    if (b.length != lower.length) {
+      throw new InvalidOperationParameterRuntimeError(
+          "Right-hand side doesn't match the size of the LDL^T decomposition!");
+    }
+
+    requireNonSingular();
+
+    int n = lower.length;
+    Rational[] x = new Rational[n];
+    RationalAccumulator sum = new RationalAccumulator();
+
+    for (int i = 0; i < n; ++i) {
+      sum.reset().add(b[i]);
+      for (int j = 0; j < i; ++j) {
+        sum.subtractProduct(lower[i][j], x[j]);
+      }
+      x[i] = sum.toRational();
+    }
+
+    // Row i of L^T is column i of L, i.e. element i of the rows below
+    for (int i = n - 1; i >= 0; --i) {
+      sum.reset().add(rationalOperation.divide(x[i], lower[i][i]));
+      for (int k = i + 1; k < n; ++k) {
+        sum.subtractProduct(lower[k][i], x[k]);
+      }
+      x[i] = sum.toRational();
+    }
+
+    return x;
+  }
+
+  public Matrix inverse() {
+    requireNonSingular();
+
+    int n = lower.length;
+    Rational[][] x = new Rational[n][n];
+
+    ParallelExecution.getInstance().forEach(0, n, column -> {
+      Rational[] unit = new Rational[n];
+      for (int i = 0; i < n; ++i) {
+        unit[i] = new Rational(i == column ? 1L : 0L, 1L);
+      }
+
+      Rational[] solution = solve(unit);
+      for (int i = 0; i < n; ++i) {
+        x[i][column] = solution[i];
+      }
+    });
+
+    return new Matrix(x);
+  }
+
+  private void requireNonSingular() {
+    if (singular) {
+      throw new InvalidOperationParameterRuntimeError("Matrix is singular");
+    }
+  }
+
+}
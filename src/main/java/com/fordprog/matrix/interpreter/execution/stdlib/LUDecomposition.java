@@ -0,0 +1,297 @@
+package com.fordprog.matrix.interpreter.execution.stdlib;
+
+import com.fordprog.matrix.interpreter.error.runtime.InvalidOperationParameterRuntimeError;
+import com.fordprog.matrix.interpreter.type.Matrix;
+import com.fordprog.matrix.interpreter.type.Rational;
+
+import java.math.BigInteger;
+
+/**
+ * Exact LU factorization with row pivoting: {@code P * A = L * U}, where L is unit lower
+ * triangular and U is upper triangular. L (without its diagonal) and U share one packed array whose
+ * row {@code i} belongs to row {@code permutation[i]} of the original matrix.
+ *
+ * <p>Scripts see the factorization as an n x (n + 1) matrix: the packed L\U values followed by
+ * one column holding the permutation, see {@link #toMatrix()} and {@link #fromMatrix(Matrix)}.
+ */
+public class LUDecomposition {
+
+  private static final RationalOperation rationalOperation = RationalOperation.getInstance();
+
+  private final Rational[][] lu;
+
+  private final int[] permutation;
+
+  private final boolean evenPermutation;
+
+  private final boolean singular;
+
+  private LUDecomposition(Rational[][] lu, int[] permutation, boolean evenPermutation,
+                          boolean singular) {
+    this.lu = lu;
+    this.permutation = permutation;
+    this.evenPermutation = evenPermutation;
+    this.singular = singular;
+  }
+
+  public static LUDecomposition decompose(Matrix m) {
+    return decompose(m, new PartialPivotStrategy());
+  }
+
+  public static LUDecomposition decompose(Matrix m, PivotStrategy pivotStrategy) {
+    if (m.getRowNum() != m.getColumnNum()) {
+      throw new InvalidOperationParameterRuntimeError(
+          "LU decomposition can only be calculated for square matrices!");
+    }
+
+    int n = m.getRowNum();
+    Rational[][] lu = new Rational[n][];
+    int[] permutation = new int[n];
+    boolean evenPermutation = true;
+    boolean singular = false;
+
+    for (int i = 0; i < n; ++i) {
+      lu[i] = m.getValue()[i].clone();
+      permutation[i] = i;
+    }
+
+    for (int k = 0; k < n; ++k) {
+      int pivot = pivotStrategy.selectPivot(lu, k, k);
+
+      if (pivot != k) {
+        Rational[] temp = lu[k];
+        lu[k] = lu[pivot];
+        lu[pivot] = temp;
+
+        int index = permutation[k];
+        permutation[k] = permutation[pivot];
+        permutation[pivot] = index;
+
+        evenPermutation = !evenPermutation;
+      }
+
+      if (lu[k][k].signum() == 0) {
+        // Nothing to eliminate in this column
+        singular = true;
+        continue;
+      }
+
+      final int step = k;
+      ParallelExecution.getInstance().forEach(k + 1, n, i -> eliminateRow(lu, step, i));
+    }
+
+    return new LUDecomposition(lu, permutation, evenPermutation, singular);
+  }
+
+  /**
+   * Restores a factorization from the matrix created by {@link #toMatrix()}.
+   */
+  public static LUDecomposition fromMatrix(Matrix m) {
+    int n = m.getRowNum();
+
+    if (m.getColumnNum() != n + 1) {
+      throw new InvalidOperationParameterRuntimeError("Parameter is not an LU decomposition!");
+    }
+
+    Rational[][] lu = new Rational[n][n];
+    int[] permutation = new int[n];
+    boolean[] seen = new boolean[n];
+    boolean singular = false;
+
+    for (int i = 0; i < n; ++i) {
+      System.arraycopy(m.getValue()[i], 0, lu[i], 0, n);
+
+      Rational index = m.getValueAtPosition(i, n).canonical();
+
+      if (!index.getDenominator().equals(BigInteger.ONE)
+          || index.getNumerator().signum() < 0
+          || index.getNumerator().compareTo(BigInteger.valueOf(n)) >= 0
+          || seen[index.getNumerator().intValue()]) {
+        throw new InvalidOperationParameterRuntimeError("Parameter is not an LU decomposition!");
+      }
+
+      permutation[i] = index.getNumerator().intValue();
+      seen[permutation[i]] = true;
+      singular |= lu[i][i].signum() == 0;
+    }
+
+    return new LUDecomposition(lu, permutation, isEvenPermutation(permutation), singular);
+  }
+
+  public Matrix toMatrix() {
+    int n = lu.length;
+    Rational[][] value = new Rational[n][n + 1];
+
+    for (int i = 0; i < n; ++i) {
+      System.arraycopy(lu[i], 0, value[i], 0, n);
+      value[i][n] = new Rational(permutation[i], 1L);
+    }
+
+    return new Matrix(value);
+  }
+
+  public int getSize() {
+    return lu.length;
+  }
+
+  public boolean isSingular() {
+    return singular;
+  }
+
+  /**
+   * Returns the diagonal element of U in row {@code i}.
+   */
+  public Rational getPivot(int i) {
+    return lu[i][i];
+  }
+
+  public Rational determinant() {
+    if (singular) {
+      return new Rational(0L, 1L);
+    }
+
+    Rational determinant = new Rational(evenPermutation ? 1L : -1L, 1L);
+
+    for (int i = 0; i < lu.length; ++i) {
+      determinant = rationalOperation.multiply(determinant, lu[i][i]);
+    }
+
+    return determinant;
+  }
+
+  /**
+   * Returns U with explicit zeros below the diagonal.
+   */
+  public Rational[][] getUpper() {
+    int n = lu.length;
+    Rational[][] upper = new Rational[n][n];
+    Rational zero = new Rational(0L, 1L);
+
+    for (int i = 0; i < n; ++i) {
+      for (int j = 0; j < n; ++j) {
+        upper[i][j] = j < i ? zero : lu[i][j];
+      }
+    }
+
+    return upper;
+  }
+
+  /**
+   * Solves {@code L * c = P * b}, i.e. applies the elimination steps to the right-hand side.
+   */
+  public Rational[] forwardSubstitute(Rational[] b) {
+    int n = lu.length;
+    Rational[] c = new Rational[n];
+    RationalAccumulator sum = new RationalAccumulator();
+
+    for (int i = 0; i < n; ++i) {
+      sum.reset().add(b[permutation[i]]);
+      for (int j = 0; j < i; ++j) {
+        sum.subtractProduct(lu[i][j], c[j]);
+      }
+      c[i] = sum.toRational();
+    }
+
+    return c;
+  }
+
+  /**
+   * Solves {@code U * x = c}.
+   */
+  public Rational[] backSubstitute(Rational[] c) {
+    requireNonSingular();
+
+    int n = lu.length;
+    Rational[] x = new Rational[n];
+    RationalAccumulator sum = new RationalAccumulator();
+
+    for (int i = n - 1; i >= 0; --i) {
+      sum.reset().add(c[i]);
+      for (int j = i + 1; j < n; ++j) {
+        sum.subtractProduct(lu[i][j], x[j]);
+      }
+      x[i] = rationalOperation.divide(sum.toRational(), lu[i][i]);
+    }
+
+    return x;
+  }
+
+  /**
+   * Solves {@code A * x = b}.
+   */
+  public Rational[] solve(Rational[] b) {
+    if (b.length != lu.length) {
+      throw new InvalidOperationParameterRuntimeError(
+          "Right-hand side doesn't match the size of the LU decomposition!");
+    }
+
+    return backSubstitute(forwardSubstitute(b));
+  }
+
+  public Matrix inverse() {
+    requireNonSingular();
+
+    int n = lu.length;
+    Rational[][] x = new Rational[n][n];
+
+    ParallelExecution.getInstance().forEach(0, n, column -> {
+      Rational[] unit = new Rational[n];
+      for (int i = 0; i < n; ++i) {
+        unit[i] = new Rational(i == column ? 1L : 0L, 1L);
+      }
+
+      Rational[] solution = solve(unit);
+      for (int i = 0; i < n; ++i) {
+        x[i][column] = solution[i];
+      }
+    });
+
+    return new Matrix(x);
+  }
+
+  private void requireNonSingular() {
+    if (singular) {
+      throw new InvalidOperationParameterRuntimeError("Matrix is singular");
+    }
+  }
+
+  private static void eliminateRow(Rational[][] lu, int k, int i) {
+    Rational[] pivotRow = lu[k];
+    Rational[] row = lu[i];
+
+    Rational ratio = rationalOperation.divide(row[k], pivotRow[k]);
+
+    // Record the ratio below the diagonal
+    row[k] = ratio;
+
+    if (ratio.signum() == 0) {
+      return;
+    }
+
+    for (int j = k + 1; j < row.length; ++j) {
+      row[j] = rationalOperation.subtract(row[j], rationalOperation.multiply(ratio, pivotRow[j]));
+    }
+  }
+
+  private static boolean isEvenPermutation(int[] permutation) {
+    boolean[] visited = new boolean[permutation.length];
+    boolean even = true;
+
+    for (int i = 0; i < permutation.length; ++i) {
+      if (!visited[i]) {
+        int cycleLength = 0;
+        for (int j = i; !visited[j]; j = permutation[j]) {
+          visited[j] = true;
+          ++cycleLength;
+        }
+
+        if (cycleLength % 2 == 0) {
+          even = !even;
+        }
+      }
+    }
+
+    return even;
+  }
+
+}
@@ -4,13 +4,26 @@ package com.fordprog.matrix.interpreter.execution.stdlib;
 import com.fordprog.matrix.interpreter.type.Rational;
 
 import java.math.BigInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 public class LogicOperation {
 
+  private static final int UNDECIDED = 2;
+
+  // Generous bound on the relative error of numerator.doubleValue() / denominator.doubleValue()
+  private static final double FILTER_ERROR_BOUND = 0x1p-48;
+
   private static LogicOperation instance = new LogicOperation();
 
+  private final LongAdder filterDecided;
+
+  private final LongAdder filterUndecided;
+
   private LogicOperation() {
-    // Do nothing...
+    ExecutionStatistics statistics = ExecutionStatistics.getInstance();
+
+    filterDecided = statistics.counter("compare.filter.decided");
+    filterUndecided = statistics.counter("compare.filter.undecided");
   }
 
   public static LogicOperation getInstance() {
@@ -18,62 +31,169 @@ public class LogicOperation {
   }
 
   public Rational lessThan(Rational a, Rational b) {
-    BigInteger lcm = leastCommonDivisor(a.getDenominator(), b.getDenominator());
+    return isLessThan(a, b) ? Rational.TRUE : Rational.FALSE;
+  }
 
-    BigInteger aNumerator = a.getNumerator().multiply(lcm.divide(a.getDenominator()));
-    BigInteger bNumerator = b.getNumerator().multiply(lcm.divide(b.getDenominator()));
+  public Rational greaterThan(Rational a, Rational b) {
+    return isGreaterThan(a, b) ? Rational.TRUE : Rational.FALSE;
+  }
+
+  public Rational lessThanOrEqual(Rational a, Rational b) {
+    return isLessThanOrEqual(a, b) ? Rational.TRUE : Rational.FALSE;
+  }
 
-    int compare = aNumerator.compareTo(bNumerator);
+  public Rational greaterThanOrEqual(Rational a, Rational b) {
+    return isGreaterThanOrEqual(a, b) ? Rational.TRUE : Rational.FALSE;
+  }
 
-    return compare == -1 ? Rational.TRUE : Rational.FALSE;
+  public Rational equalTo(Rational a, Rational b) {
+    return isEqualTo(a, b) ? Rational.TRUE : Rational.FALSE;
   }
 
-  public Rational greaterThan(Rational a, Rational b) {
-    BigInteger lcm = leastCommonDivisor(a.getDenominator(), b.getDenominator());
+  public boolean isLessThan(Rational a, Rational b) {
+    return compare(a, b) < 0;
+  }
 
-    BigInteger aNumerator = a.getNumerator().multiply(lcm.divide(a.getDenominator()));
-    BigInteger bNumerator = b.getNumerator().multiply(lcm.divide(b.getDenominator()));
+  public boolean isGreaterThan(Rational a, Rational b) {
+    return compare(a, b) > 0;
+  }
 
-    int compare = aNumerator.compareTo(bNumerator);
+  public boolean isLessThanOrEqual(Rational a, Rational b) {
+    return compare(a, b) <= 0;
+  }
 
-    return compare == 1 ? Rational.TRUE : Rational.FALSE;
+  public boolean isGreaterThanOrEqual(Rational a, Rational b) {
+    return compare(a, b) >= 0;
   }
 
-  public Rational lessThanOrEqual(Rational a, Rational b) {
-    BigInteger lcm = leastCommonDivisor(a.getDenominator(), b.getDenominator());
+  public boolean isEqualTo(Rational a, Rational b) {
+    return compare(a, b) == 0;
+  }
 
-    BigInteger aNumerator = a.getNumerator().multiply(lcm.divide(a.getDenominator()));
-    BigInteger bNumerator = b.getNumerator().multiply(lcm.divide(b.getDenominator()));
+  /**
+   * Compares two rationals, returning -1, 0 or 1 as {@code a} is less than, equal to or greater
+   * than {@code b}. Decides on the signs first and only cross-multiplies operands of equal sign.
+   */
+  public int compare(Rational a, Rational b) {
+    int aSign = a.signum();
+    int bSign = b.signum();
 
-    int compare = aNumerator.compareTo(bNumerator);
+    if (aSign != bSign) {
+      return aSign < bSign ? -1 : 1;
+    }
 
-    return compare == -1 || compare == 0 ? Rational.TRUE : Rational.FALSE;
+    if (aSign == 0) {
+      return 0;
+    }
+
+    return crossCompare(a, b, false);
   }
 
-  public Rational greaterThanOrEqual(Rational a, Rational b) {
-    BigInteger lcm = leastCommonDivisor(a.getDenominator(), b.getDenominator());
+  /**
+   * Compares the absolute values of two rationals, see {@link #compare(Rational, Rational)}.
+   */
+  public int compareMagnitude(Rational a, Rational b) {
+    boolean aZero = a.signum() == 0;
+    boolean bZero = b.signum() == 0;
+
+    if (aZero || bZero) {
+      return aZero ? (bZero ? 0 : -1) : 1;
+    }
+
+    return crossCompare(a, b, true);
+  }
+
+  // Compares a.n * b.d with b.n * a.d, corrected by the sign of the denominators
+  private int crossCompare(Rational a, Rational b, boolean magnitude) {
+    if (a.fitsInLong() && b.fitsInLong()) {
+      long aNumerator = a.getLongNumerator();
+      long aDenominator = a.getLongDenominator();
+      long bNumerator = b.getLongNumerator();
+      long bDenominator = b.getLongDenominator();
+
+      if (magnitude) {
+        aNumerator = Math.abs(aNumerator);
+        aDenominator = Math.abs(aDenominator);
+        bNumerator = Math.abs(bNumerator);
+        bDenominator = Math.abs(bDenominator);
+      }
+
+      if (aDenominator == bDenominator) {
+        // a.n / d compared with b.n / d, flipped by a negative d
+        return Long.signum(aDenominator) * Long.compare(aNumerator, bNumerator);
+      }
+
+      int denominatorSign = Long.signum(aDenominator) * Long.signum(bDenominator);
+
+      try {
+        long left = Math.multiplyExact(aNumerator, bDenominator);
+        long right = Math.multiplyExact(bNumerator, aDenominator);
 
-    BigInteger aNumerator = a.getNumerator().multiply(lcm.divide(a.getDenominator()));
-    BigInteger bNumerator = b.getNumerator().multiply(lcm.divide(b.getDenominator()));
+        return denominatorSign * Long.compare(left, right);
+      } catch (ArithmeticException e) {
+        // Overflow, fall back to BigInteger arithmetic
+      }
+    }
 
-    int compare = aNumerator.compareTo(bNumerator);
+    int filtered = filteredCompare(a, b, magnitude);
 
-    return compare == 1 || compare == 0 ? Rational.TRUE : Rational.FALSE;
+    if (filtered != UNDECIDED) {
+      filterDecided.increment();
+
+      return filtered;
+    }
+
+    filterUndecided.increment();
+
+    BigInteger aNumerator = a.getNumerator();
+    BigInteger aDenominator = a.getDenominator();
+    BigInteger bNumerator = b.getNumerator();
+    BigInteger bDenominator = b.getDenominator();
+
+    if (magnitude) {
+      aNumerator = aNumerator.abs();
+      aDenominator = aDenominator.abs();
+      bNumerator = bNumerator.abs();
+      bDenominator = bDenominator.abs();
+    }
+
+    int denominatorSign = aDenominator.signum() * bDenominator.signum();
+
+    return denominatorSign
+        * aNumerator.multiply(bDenominator).compareTo(bNumerator.multiply(aDenominator));
   }
 
-  public Rational equalTo(Rational a, Rational b) {
-    BigInteger lcm = leastCommonDivisor(a.getDenominator(), b.getDenominator());
+  /**
+   * Compares the double approximations of two non-zero rationals. Every BigInteger is rounded to
+   * the nearest double, so each approximation is within a few ulps of the exact value; the result
+   * is only trusted when the approximations differ by far more than that. Returns
+   * {@link #UNDECIDED} for near-ties and for values outside the normal double range.
+   */
+  private int filteredCompare(Rational a, Rational b, boolean magnitude) {
+    double aValue = a.getValue();
+    double bValue = b.getValue();
+
+    if (!isReliable(aValue) || !isReliable(bValue)) {
+      return UNDECIDED;
+    }
+
+    if (magnitude) {
+      aValue = Math.abs(aValue);
+      bValue = Math.abs(bValue);
+    }
 
-    BigInteger aNumerator = a.getNumerator().multiply(lcm.divide(a.getDenominator()));
-    BigInteger bNumerator = b.getNumerator().multiply(lcm.divide(b.getDenominator()));
+    double difference = aValue - bValue;
 
-    int compare = aNumerator.compareTo(bNumerator);
+    if (Math.abs(difference) > FILTER_ERROR_BOUND * (Math.abs(aValue) + Math.abs(bValue))) {
+      return difference < 0 ? -1 : 1;
+    }
 
-    return compare == 0 ? Rational.TRUE : Rational.FALSE;
+    return UNDECIDED;
   }
 
-  private BigInteger leastCommonDivisor(BigInteger a, BigInteger b) {
-    return ((a.multiply(b)).abs()).divide(a.gcd(b));
+  private boolean isReliable(double value) {
+    return !Double.isNaN(value) && !Double.isInfinite(value)
+        && Math.abs(value) >= Double.MIN_NORMAL;
   }
 
 }
@@ -1,19 +1,38 @@
 package com.fordprog.matrix.interpreter.execution.stdlib;
 
 
-import static java.lang.Math.abs;
 import static java.lang.Math.sqrt;
 
 import com.fordprog.matrix.interpreter.error.runtime.InvalidOperationParameterRuntimeError;
+import com.fordprog.matrix.interpreter.type.DoubleMatrixStorage;
+import com.fordprog.matrix.interpreter.type.IntegerMatrixStorage;
+import com.fordprog.matrix.interpreter.type.LongMatrixStorage;
 import com.fordprog.matrix.interpreter.type.Matrix;
 import com.fordprog.matrix.interpreter.type.Rational;
+import com.fordprog.matrix.interpreter.type.RationalMatrixStorage;
+import com.fordprog.matrix.interpreter.type.SparseMatrixStorage;
 import org.apache.commons.math3.linear.Array2DRowRealMatrix;
 import org.apache.commons.math3.linear.EigenDecomposition;
 
 import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.function.UnaryOperator;
 
 public class MatrixOperation {
 
+  /**
+   * Decides which arithmetic the matrix operations run on.
+   */
+  public enum NumericMode {
+
+    // Exact rational arithmetic
+    EXACT,
+
+    // Double-precision floating point, results are converted to rationals only when read
+    DOUBLE
+
+  }
+
   private static MatrixOperation instance = new MatrixOperation();
 
   private final Rational epsilon;
@@ -22,26 +41,121 @@ public class MatrixOperation {
 
   private final LogicOperation logicOperation;
 
+  private final BareissDeterminant bareissDeterminant;
+
+  private final MultiModularEngine multiModularEngine;
+
+  private final DixonSolver dixonSolver;
+
+  private final ParallelExecution parallelExecution;
+
+  private final DoubleMatrixOperation doubleMatrixOperation;
+
+  private final HybridSolver hybridSolver;
+
+  private final SparseMatrixOperation sparseMatrixOperation;
+
+  private final SparseLUSolver sparseLUSolver;
+
+  private final StructuredMatrixOperation structuredMatrixOperation;
+
+  private final StrassenMultiplication strassenMultiplication;
+
+  private volatile PivotStrategy pivotStrategy;
+
+  private volatile NumericMode numericMode;
+
+  private volatile int multiplyTileSize;
+
   private MatrixOperation() {
     rationalOperation = RationalOperation.getInstance();
     logicOperation = LogicOperation.getInstance();
+    bareissDeterminant = BareissDeterminant.getInstance();
+    multiModularEngine = MultiModularEngine.getInstance();
+    dixonSolver = DixonSolver.getInstance();
+    parallelExecution = ParallelExecution.getInstance();
+    doubleMatrixOperation = DoubleMatrixOperation.getInstance();
+    hybridSolver = HybridSolver.getInstance();
+    sparseMatrixOperation = SparseMatrixOperation.getInstance();
+    sparseLUSolver = SparseLUSolver.getInstance();
+    structuredMatrixOperation = StructuredMatrixOperation.getInstance();
+    strassenMultiplication = StrassenMultiplication.getInstance();
+    pivotStrategy = new PartialPivotStrategy();
+    numericMode = NumericMode.EXACT;
+    multiplyTileSize = 32;
 
     // 1e-10
-    epsilon = new Rational(BigInteger.ONE, BigInteger.valueOf(10000000000L));
+    epsilon = new Rational(1L, 10000000000L);
   }
 
   public static MatrixOperation getInstance() {
     return instance;
   }
 
+  public PivotStrategy getPivotStrategy() {
+    return pivotStrategy;
+  }
+
+  /**
+   * Sets how inverse, gaussElimination and solveLinearSystem choose their pivots.
+   */
+  public void setPivotStrategy(PivotStrategy pivotStrategy) {
+    this.pivotStrategy = pivotStrategy;
+  }
+
+  public NumericMode getNumericMode() {
+    return numericMode;
+  }
+
+  public void setNumericMode(NumericMode numericMode) {
+    this.numericMode = numericMode;
+  }
+
+  public int getMultiplyTileSize() {
+    return multiplyTileSize;
+  }
+
+  /**
+   * Sets the side length of the output tiles multiply distributes over the worker threads.
+   */
+  public void setMultiplyTileSize(int multiplyTileSize) {
+    this.multiplyTileSize = multiplyTileSize;
+  }
+
   public Matrix add(Matrix a, Matrix b) {
     if (isMatchingMatrices(a, b)) {
+      if (numericMode == NumericMode.DOUBLE) {
+        return doubleMatrixOperation.add(a, b);
+      }
+
+      if (isSparseStorage(a) && isSparseStorage(b)) {
+        return sparseMatrixOperation.add(sparseStorage(a), sparseStorage(b), false);
+      }
+
+      if (isLongStorage(a) && isLongStorage(b)) {
+        try {
+          return addLong(longStorage(a), longStorage(b), false);
+        } catch (ArithmeticException e) {
+          // Overflow, fall back to rational arithmetic
+        }
+      }
+
+      if (isIntegerStorage(a) || isIntegerStorage(b)) {
+        IntegerMatrixStorage aInteger = integerStorage(a);
+        IntegerMatrixStorage bInteger = integerStorage(b);
+
+        if (aInteger != null && bInteger != null) {
+          return addInteger(aInteger, bInteger, false);
+        }
+      }
+
+      Rational[][] aValue = a.getValue();
+      Rational[][] bValue = b.getValue();
       Rational value[][] = new Rational[a.getRowNum()][a.getColumnNum()];
 
       for (int r = 0; r < a.getRowNum(); ++r) {
         for (int c = 0; c < a.getColumnNum(); ++c) {
-          value[r][c] =
-              rationalOperation.add(a.getValueAtPosition(r, c), b.getValueAtPosition(r, c));
+          value[r][c] = rationalOperation.add(aValue[r][c], bValue[r][c]);
         }
       }
 
@@ -53,12 +167,38 @@ public class MatrixOperation {
 
   public Matrix subtract(Matrix a, Matrix b) {
     if (isMatchingMatrices(a, b)) {
+      if (numericMode == NumericMode.DOUBLE) {
+        return doubleMatrixOperation.subtract(a, b);
+      }
+
+      if (isSparseStorage(a) && isSparseStorage(b)) {
+        return sparseMatrixOperation.add(sparseStorage(a), sparseStorage(b), true);
+      }
+
+      if (isLongStorage(a) && isLongStorage(b)) {
+        try {
+          return addLong(longStorage(a), longStorage(b), true);
+        } catch (ArithmeticException e) {
+          // Overflow, fall back to rational arithmetic
+        }
+      }
+
+      if (isIntegerStorage(a) || isIntegerStorage(b)) {
+        IntegerMatrixStorage aInteger = integerStorage(a);
+        IntegerMatrixStorage bInteger = integerStorage(b);
+
+        if (aInteger != null && bInteger != null) {
+          return addInteger(aInteger, bInteger, true);
+        }
+      }
+
+      Rational[][] aValue = a.getValue();
+      Rational[][] bValue = b.getValue();
       Rational value[][] = new Rational[a.getRowNum()][a.getColumnNum()];
 
       for (int r = 0; r < a.getRowNum(); ++r) {
         for (int c = 0; c < a.getColumnNum(); ++c) {
-          value[r][c] =
-              rationalOperation.subtract(a.getValueAtPosition(r, c), b.getValueAtPosition(r, c));
+          value[r][c] = rationalOperation.subtract(aValue[r][c], bValue[r][c]);
         }
       }
 
@@ -70,22 +210,39 @@ public class MatrixOperation {
 
   public Matrix multiply(Matrix a, Matrix b) {
     if (a.getColumnNum() == b.getRowNum()) {
-      Rational sum;
-      Rational value[][] = new Rational[a.getRowNum()][b.getColumnNum()];
+      if (numericMode == NumericMode.DOUBLE) {
+        return doubleMatrixOperation.multiply(a, b);
+      }
 
-      for (int r = 0; r < a.getRowNum(); ++r) {
-        for (int c = 0; c < b.getColumnNum(); ++c) {
-          sum = new Rational(BigInteger.ZERO, BigInteger.ONE);
+      if (isSparseStorage(a) || isSparseStorage(b)) {
+        return sparseMatrixOperation.multiply(SparseMatrixStorage.fromStorage(a.getStorage()),
+            SparseMatrixStorage.fromStorage(b.getStorage()));
+      }
+
+      if (isLongStorage(a) && isLongStorage(b)) {
+        try {
+          return multiplyLong(longStorage(a), longStorage(b));
+        } catch (ArithmeticException e) {
+          // Overflow, fall back to rational arithmetic
+        }
+      }
 
-          for (int i = 0; i < b.getRowNum(); ++i) {
-            sum = rationalOperation.add(sum, rationalOperation
-                .multiply(a.getValueAtPosition(r, i), b.getValueAtPosition(i, c)));
-          }
+      if (isIntegerStorage(a) || isIntegerStorage(b)) {
+        IntegerMatrixStorage aInteger = integerStorage(a);
+        IntegerMatrixStorage bInteger = integerStorage(b);
 
-          value[r][c] = sum;
+        if (aInteger != null && bInteger != null) {
+          return multiplyInteger(aInteger, bInteger);
         }
       }
 
+      Rational[][] aValue = a.getValue();
+      Rational[][] bColumns = transpose(b).getValue();
+      Rational value[][] = new Rational[a.getRowNum()][b.getColumnNum()];
+
+      forEachProductElement(a.getRowNum(), b.getColumnNum(),
+          (r, c) -> value[r][c] = dotProduct(aValue[r], bColumns[c]));
+
       return new Matrix(value);
     } else {
       throw new InvalidOperationParameterRuntimeError("Parameter matrices cannot be multiplied!");
@@ -93,182 +250,196 @@ public class MatrixOperation {
   }
 
   public Matrix inverse(Matrix m) {
-    Rational mValue[][] = new Rational[m.getRowNum()][m.getColumnNum()];
-    for (int i = 0; i < m.getRowNum(); i++) {
-      mValue[i] = m.getValue()[i].clone();
+    if (numericMode == NumericMode.DOUBLE) {
+      return doubleMatrixOperation.inverse(m);
     }
 
-    int n = mValue.length;
-    Rational x[][] = new Rational[n][n];
-    Rational b[][] = new Rational[n][n];
-    int index[] = new int[n];
+    if (m.getStructure().isIdentity()) {
+      return new Matrix(m);
+    }
 
-    for (int i = 0; i < n; ++i) {
-      for (int j = 0; j < n; ++j) {
-        if (i == j) {
-          b[i][j] = new Rational(BigInteger.ONE, BigInteger.ONE);
-        } else {
-          b[i][j] = new Rational(BigInteger.ZERO, BigInteger.ONE);
-        }
-      }
+    if (m.getStructure().isDiagonal()) {
+      return structuredMatrixOperation.diagonalInverse(m);
     }
 
-    // Transform the matrix into an upper triangle
-    mValue = gaussian(mValue, index);
+    if (m.getRowNum() == m.getColumnNum() && hybridSolver.isEnabled()) {
+      Rational[][] x = hybridSolver.inverse(m.getValue());
 
-    // Update the matrix b[i][j] with the ratios stored
-    for (int i = 0; i < n - 1; ++i) {
-      for (int j = i + 1; j < n; ++j) {
-        for (int k = 0; k < n; ++k) {
-          b[index[j]][k] =
-              rationalOperation.subtract(b[index[j]][k],
-                  rationalOperation.multiply(mValue[index[j]][i], b[index[i]][k]));
-        }
+      if (x != null) {
+        return new Matrix(x);
       }
     }
 
-    // Perform backward substitutions
-    for (int i = 0; i < n; ++i) {
-      x[n - 1][i] = rationalOperation.divide(b[index[n - 1]][i], mValue[index[n - 1]][n - 1]);
-      for (int j = n - 2; j >= 0; --j) {
-        x[j][i] = b[index[j]][i];
-        for (int k = j + 1; k < n; ++k) {
-          x[j][i] =
-              rationalOperation
-                  .subtract(x[j][i], rationalOperation.multiply(mValue[index[j]][k], x[k][i]));
-        }
-        x[j][i] = rationalOperation.divide(x[j][i], mValue[index[j]][j]);
-      }
+    if (m.getRowNum() == m.getColumnNum() && multiModularEngine.isPreferred(m.getRowNum())) {
+      return new Matrix(multiModularEngine.inverse(m.getValue()));
     }
-    return new Matrix(x);
-  }
 
-  private Rational[][] gaussian(Rational[][] m, int[] index) {
-    int n = index.length;
-    Rational c[] = new Rational[n];
+    LDLDecomposition symmetric = symmetricDecomposition(m, new Rational(0L, 1L));
 
-    // Initialize the index
-    for (int i = 0; i < n; ++i) {
-      index[i] = i;
+    if (symmetric != null) {
+      return symmetric.inverse();
     }
 
-    // Find the rescaling factors, one from each row
-    for (int i = 0; i < n; ++i) {
-      Rational c1 = new Rational(BigInteger.ZERO, BigInteger.ONE);
-      for (int j = 0; j < n; ++j) {
-        Rational c0 = new Rational(abs(m[i][j].getValue()));
-        if (logicOperation.greaterThan(c0, c1).isEqual(Rational.TRUE)) {
-          c1 = c0;
-        }
-      }
-      c[i] = c1;
+    return LUDecomposition.decompose(m, pivotStrategy).inverse();
+  }
+
+  /**
+   * Raises a square matrix to an integer power by repeated squaring, negative exponents use the
+   * inverse and zero gives the identity.
+   */
+  public Matrix power(Matrix m, Rational k) {
+    if (m.getRowNum() != m.getColumnNum()) {
+      throw new InvalidOperationParameterRuntimeError(
+          "Power can only be calculated for square matrices!");
     }
 
-    // Search the pivoting element from each column
-    int k = 0;
-    for (int j = 0; j < n - 1; ++j) {
-      Rational pi1 = new Rational(BigInteger.ZERO, BigInteger.ONE);
-      for (int i = j; i < n; ++i) {
-        Rational pi0 = new Rational(abs(m[index[i]][j].getValue()));
-        pi0 = rationalOperation.divide(pi0, c[index[i]]);
-        if (logicOperation.greaterThan(pi0, pi1).isEqual(Rational.TRUE)) {
-          pi1 = pi0;
-          k = i;
-        }
-      }
+    Rational exponent = k.canonical();
 
-      // Interchange rows according to the pivoting order
-      int itmp = index[j];
-      index[j] = index[k];
-      index[k] = itmp;
-      for (int i = j + 1; i < n; ++i) {
-        Rational pj = rationalOperation.divide(m[index[i]][j], m[index[j]][j]);
+    if (!exponent.fitsInLong() || exponent.getLongDenominator() != 1L) {
+      throw new InvalidOperationParameterRuntimeError("Matrix exponent must be an integer!");
+    }
 
-        // Record pivoting ratios below the diagonal
-        m[index[i]][j] = pj;
+    long e = exponent.getLongNumerator();
+    Matrix base = e < 0 ? inverse(m) : m;
+    Matrix result = null;
 
-        // Modify other elements accordingly
-        for (int l = j + 1; l < n; ++l) {
-          m[index[i]][l] =
-              rationalOperation
-                  .subtract(m[index[i]][l], rationalOperation.multiply(pj, m[index[j]][l]));
-        }
+    for (e = Math.abs(e); e > 0; e >>= 1) {
+      if ((e & 1) != 0) {
+        result = result == null ? base : multiply(result, base);
+      }
+
+      if (e > 1) {
+        base = multiply(base, base);
       }
     }
 
-    return m;
+    return result != null ? result : identity(m.getRowNum());
   }
 
   public Rational determinant(Matrix m) {
-    Rational mValue[][] = new Rational[m.getRowNum()][m.getColumnNum()];
-    for (int i = 0; i < m.getRowNum(); i++) {
-      mValue[i] = m.getValue()[i].clone();
+    if (m.getRowNum() != m.getColumnNum()) {
+      throw new InvalidOperationParameterRuntimeError(
+          "Determinant can only be calculated for square matrices!");
+    }
+
+    if (numericMode == NumericMode.DOUBLE) {
+      return doubleMatrixOperation.determinant(m);
+    }
+
+    if (m.getStructure().isUpperTriangular() || m.getStructure().isLowerTriangular()) {
+      return structuredMatrixOperation.triangularDeterminant(m);
+    }
+
+    if (multiModularEngine.isPreferred(m.getRowNum())) {
+      return multiModularEngine.determinant(m.getValue());
     }
 
-    return determinantArray(mValue);
+    return bareissDeterminant.determinant(m.getValue());
   }
 
-  private Rational determinantArray(Rational[][] mValue) {
-    Rational sum = new Rational(BigInteger.ZERO, BigInteger.ONE);
-    Rational s;
+  public Rational rank(Matrix m) {
+    if (numericMode == NumericMode.DOUBLE) {
+      return doubleMatrixOperation.rank(m);
+    }
+
+    return new Rational(multiModularEngine.rank(m.getValue()), 1L);
+  }
+
+  public Matrix transpose(Matrix a) {
+    if (numericMode == NumericMode.DOUBLE) {
+      return doubleMatrixOperation.transpose(a);
+    }
 
-    if (mValue.length == 1) {  //bottom case of recursion. size 1 matrix determinant is itself.
-      return mValue[0][0];
+    if (isSparseStorage(a)) {
+      return sparseMatrixOperation.transpose(sparseStorage(a));
     }
-    for (int i = 0; i < mValue.length; i++) { //finds determinant using row-by-row expansion
-      Rational[][] smaller =
-          new Rational[mValue.length - 1][mValue.length
-              - 1]; //creates smaller matrix- values not in same row, column
 
-      for (int a = 1; a < mValue.length; a++) {
-        for (int b = 0; b < mValue.length; b++) {
-          if (b < i) {
-            smaller[a - 1][b] = mValue[a][b];
-          } else if (b > i) {
-            smaller[a - 1][b - 1] = mValue[a][b];
-          }
+    int rowNum = a.getRowNum();
+    int columnNum = a.getColumnNum();
+
+    if (isLongStorage(a)) {
+      long[] numerators = longStorage(a).getNumerators();
+      long[] denominators = longStorage(a).getDenominators();
+
+      long[] resultNumerators = new long[numerators.length];
+      long[] resultDenominators = new long[denominators.length];
+
+      for (int r = 0; r < rowNum; ++r) {
+        for (int c = 0; c < columnNum; ++c) {
+          resultNumerators[c * rowNum + r] = numerators[r * columnNum + c];
+          resultDenominators[c * rowNum + r] = denominators[r * columnNum + c];
         }
       }
-      if (i % 2 == 0) { //sign changes based on i
-        s = new Rational(BigInteger.ONE, BigInteger.ONE);
-      } else {
-        s = new Rational(BigInteger.valueOf(-1L), BigInteger.ONE);
-        ;
+
+      return new Matrix(
+          new LongMatrixStorage(columnNum, rowNum, resultNumerators, resultDenominators));
+    }
+
+    if (isIntegerStorage(a)) {
+      IntegerMatrixStorage aInteger = (IntegerMatrixStorage) a.getStorage();
+
+      BigInteger[] numerators = new BigInteger[rowNum * columnNum];
+
+      for (int r = 0; r < rowNum; ++r) {
+        for (int c = 0; c < columnNum; ++c) {
+          numerators[c * rowNum + r] = aInteger.getNumerators()[r * columnNum + c];
+        }
       }
 
-      //recursive step: determinant of larger determined by smaller.
-      sum = rationalOperation.add(
-          sum,
-          rationalOperation.multiply(
-              rationalOperation.multiply(
-                  s,
-                  mValue[0][i]
-              ),
-              determinantArray(smaller)
-          )
-      );
+      return new Matrix(new IntegerMatrixStorage(columnNum, rowNum, numerators,
+          aInteger.getDenominator()));
     }
-    return sum;
-  }
 
-  public Matrix transpose(Matrix a) {
-    Rational value[][] = new Rational[a.getColumnNum()][a.getRowNum()];
+    Rational[] values = new Rational[rowNum * columnNum];
 
-    for (int r = 0; r < a.getRowNum(); ++r) {
-      for (int c = 0; c < a.getColumnNum(); ++c) {
-        value[c][r] = new Rational(a.getValueAtPosition(r, c));
+    for (int r = 0; r < rowNum; ++r) {
+      for (int c = 0; c < columnNum; ++c) {
+        values[c * rowNum + r] = a.getValueAtPosition(r, c);
       }
     }
 
-    return new Matrix(value);
+    return new Matrix(new RationalMatrixStorage(columnNum, rowNum, values));
   }
 
   public Matrix scalarMultiply(Matrix a, Rational s) {
+    if (numericMode == NumericMode.DOUBLE) {
+      return doubleMatrixOperation.scalarMultiply(a, s);
+    }
+
+    if (isSparseStorage(a)) {
+      return sparseMatrixOperation.scalarMultiply(sparseStorage(a), s);
+    }
+
+    Rational scalar = s.canonical();
+
+    if (isLongStorage(a) && scalar.fitsInLong()) {
+      try {
+        return scalarMultiplyLong(longStorage(a), scalar.getLongNumerator(),
+            scalar.getLongDenominator());
+      } catch (ArithmeticException e) {
+        // Overflow, fall back to rational arithmetic
+      }
+    }
+
+    if (isIntegerStorage(a)) {
+      IntegerMatrixStorage aInteger = (IntegerMatrixStorage) a.getStorage();
+
+      BigInteger[] numerators = new BigInteger[aInteger.getNumerators().length];
+
+      for (int i = 0; i < numerators.length; ++i) {
+        numerators[i] = aInteger.getNumerators()[i].multiply(scalar.getNumerator());
+      }
+
+      return new Matrix(IntegerMatrixStorage.reduced(a.getRowNum(), a.getColumnNum(), numerators,
+          aInteger.getDenominator().multiply(scalar.getDenominator())));
+    }
+
+    Rational[][] aValue = a.getValue();
     Rational value[][] = new Rational[a.getRowNum()][a.getColumnNum()];
 
     for (int r = 0; r < a.getRowNum(); ++r) {
       for (int c = 0; c < a.getColumnNum(); ++c) {
-        value[r][c] = rationalOperation.multiply(a.getValueAtPosition(r, c), s);
+        value[r][c] = rationalOperation.multiply(aValue[r][c], s);
       }
     }
 
@@ -287,139 +458,256 @@ public class MatrixOperation {
           "Gauss elimination parameters' row number don't match!");
     }
 
-    Rational aValue[][] = new Rational[a.getRowNum()][a.getColumnNum()];
-    for (int i = 0; i < a.getRowNum(); i++) {
-      aValue[i] = a.getValue()[i].clone();
+    if (numericMode == NumericMode.DOUBLE) {
+      return doubleMatrixOperation.gaussElimination(a, v);
     }
 
-    Rational bValue[] = v.getValue()[0].clone();
+    LUDecomposition decomposition = decomposeNonSingular(a);
 
-    int N = v.getColumnNum();
+    Rational[][] upper = decomposition.getUpper();
+    Rational[] c = decomposition.forwardSubstitute(v.getValue()[0]);
 
-    for (int p = 0; p < N; p++) {
+    Rational result[][] = new Rational[a.getRowNum()][a.getColumnNum() + 1];
 
-      // find pivot row and swap
-      int max = p;
-      for (int i = p + 1; i < N; i++) {
-        if (logicOperation
-            .greaterThan(rationalOperation.abs(aValue[i][p]), rationalOperation.abs(aValue[max][p]))
-            .equals(Rational.TRUE)) {
-          max = i;
-        }
+    for (int r = 0; r < a.getRowNum(); ++r) {
+      for (int col = 0; col < a.getColumnNum(); ++col) {
+        result[r][col] = upper[r][col];
       }
+    }
 
-      Rational[] temp = aValue[p];
-      aValue[p] = aValue[max];
-      aValue[max] = temp;
+    for (int r = 0; r < c.length; ++r) {
+      result[r][a.getColumnNum()] = c[r];
+    }
 
-      Rational t = bValue[p];
-      bValue[p] = bValue[max];
-      bValue[max] = t;
+    return new Matrix(result);
+  }
 
-      // singular or nearly singular
-      if (logicOperation.lessThanOrEqual(rationalOperation.abs(aValue[p][p]), epsilon)
-          .equals(Rational.TRUE)) {
-        throw new InvalidOperationParameterRuntimeError("Matrix is singular or nearly singular");
-      }
+  /**
+   * Solves {@code a * x = v} for a row vector {@code v}. Dense elimination with partial pivoting
+   * rejects a matrix as nearly singular when a pivot is at most 1e-10 in magnitude. The other
+   * paths only reject singular matrices: sparse elimination, the hybrid solver and Dixon lifting,
+   * which solves systems of at least {@link DixonSolver#getThreshold()} unknowns.
+   */
+  public Matrix solveLinearSystem(Matrix a, Matrix v) {
+    if (v.getRowNum() != 1) {
+      throw new InvalidOperationParameterRuntimeError(
+          "Second parameter of linear equation solving must be a row vector!");
+    }
 
-      // pivot within A and b
-      for (int i = p + 1; i < N; i++) {
-        Rational alpha = rationalOperation.divide(aValue[i][p], aValue[p][p]);
-        bValue[i] =
-            rationalOperation.subtract(bValue[i], rationalOperation.multiply(alpha, bValue[p]));
-        for (int j = p; j < N; j++) {
-          aValue[i][j] =
-              rationalOperation
-                  .subtract(aValue[i][j], rationalOperation.multiply(alpha, aValue[p][j]));
-        }
+    if (a.getRowNum() != v.getColumnNum()) {
+      throw new InvalidOperationParameterRuntimeError(
+          "Linear equation system solving parameters' row number don't match!");
+    }
+
+    if (numericMode == NumericMode.DOUBLE) {
+      return doubleMatrixOperation.solveLinearSystems(a, v);
+    }
+
+    if (a.getRowNum() == a.getColumnNum()) {
+      Rational[][] x = {structuredMatrixOperation.solve(a, v.getValue()[0], minimumPivot())};
+
+      if (x[0] != null) {
+        return new Matrix(x);
       }
     }
 
-    Rational result[][] = new Rational[a.getRowNum()][a.getColumnNum() + 1];
+    if (a.getRowNum() == a.getColumnNum() && isSparseStorage(a)) {
+      Rational[][] x = {sparseLUSolver.solve(sparseStorage(a), v.getValue()[0])};
 
-    for (int r = 0; r < a.getRowNum(); ++r) {
-      for (int c = 0; c < a.getColumnNum(); ++c) {
-        result[r][c] = aValue[r][c];
+      return new Matrix(x);
+    }
+
+    if (a.getRowNum() == a.getColumnNum() && hybridSolver.isEnabled()) {
+      Rational[][] x = {hybridSolver.solve(a.getValue(), v.getValue()[0])};
+
+      if (x[0] != null) {
+        return new Matrix(x);
       }
     }
 
-    for (int r = 0; r < bValue.length; ++r) {
-      result[r][a.getColumnNum()] = bValue[r];
+    if (a.getRowNum() == a.getColumnNum() && dixonSolver.isPreferred(a.getRowNum())) {
+      Rational[][] x = {dixonSolver.solve(a.getValue(), v.getValue()[0])};
+
+      return new Matrix(x);
     }
 
-    return new Matrix(result);
+    LDLDecomposition symmetric = symmetricDecomposition(a, minimumPivot());
+
+    if (symmetric != null) {
+      return solveRows(v, symmetric::solve);
+    }
+
+    return solveWithDecomposition(decomposeNonSingular(a), v);
   }
 
-  public Matrix solveLinearSystem(Matrix a, Matrix v) {
+  /**
+   * Solves a symmetric system by an LDL^T factorization, which needs half the work of LU. Falls
+   * back to LU if the matrix needs pivoting.
+   */
+  public Matrix solveSymmetric(Matrix a, Matrix v) {
     if (v.getRowNum() != 1) {
       throw new InvalidOperationParameterRuntimeError(
           "Second parameter of linear equation solving must be a row vector!");
     }
 
-    if (a.getRowNum() != v.getColumnNum()) {
+    if (!a.getStructure().isSymmetric() || a.getRowNum() != v.getColumnNum()) {
+      throw new InvalidOperationParameterRuntimeError(
+          "Symmetric solving needs a symmetric matrix matching the row vector!");
+    }
+
+    if (numericMode == NumericMode.DOUBLE) {
+      return doubleMatrixOperation.solveLinearSystems(a, v);
+    }
+
+    LDLDecomposition symmetric = symmetricDecomposition(a, minimumPivot());
+
+    if (symmetric != null) {
+      return solveRows(v, symmetric::solve);
+    }
+
+    return solveWithDecomposition(decomposeNonSingular(a), v);
+  }
+
+  /**
+   * Solves the system in double precision with an iterative method, stopping at the relative
+   * residual {@code tolerance} or after {@code maxIterations} iterations.
+   */
+  public Matrix solveIteratively(Matrix a, Matrix v, IterativeSolver.Method method,
+                                 Rational tolerance, Rational maxIterations) {
+    if (v.getRowNum() != 1) {
+      throw new InvalidOperationParameterRuntimeError(
+          "Second parameter of linear equation solving must be a row vector!");
+    }
+
+    if (a.getRowNum() != a.getColumnNum() || a.getRowNum() != v.getColumnNum()) {
+      throw new InvalidOperationParameterRuntimeError(
+          "Iterative solving needs a square matrix matching the row vector!");
+    }
+
+    if (tolerance.signum() <= 0) {
+      throw new InvalidOperationParameterRuntimeError("Tolerance must be positive!");
+    }
+
+    Rational iterations = maxIterations.canonical();
+
+    if (iterations.signum() <= 0 || !iterations.fitsInLong()
+        || iterations.getLongDenominator() != 1L
+        || iterations.getLongNumerator() > Integer.MAX_VALUE) {
+      throw new InvalidOperationParameterRuntimeError(
+          "Maximum iteration count must be a positive integer!");
+    }
+
+    double[] x = IterativeSolver.getInstance().solve(method, a, v.getDoubleValue()[0],
+        tolerance.getValue(), (int) iterations.getLongNumerator());
+
+    return new Matrix(new DoubleMatrixStorage(1, x.length, x));
+  }
+
+  public Matrix decompose(Matrix m) {
+    return LUDecomposition.decompose(m, pivotStrategy).toMatrix();
+  }
+
+  /**
+   * Returns L with D on its diagonal, see {@link LDLDecomposition#toMatrix()}.
+   */
+  public Matrix decomposeSymmetric(Matrix m) {
+    LDLDecomposition decomposition = LDLDecomposition.decompose(m);
+
+    if (decomposition == null) {
+      throw new InvalidOperationParameterRuntimeError(
+          "Matrix has no LDL^T decomposition without pivoting!");
+    }
+
+    return decomposition.toMatrix();
+  }
+
+  /**
+   * Returns the Cholesky factor of a symmetric positive definite matrix in double precision, as
+   * its elements are square roots.
+   */
+  public Matrix cholesky(Matrix m) {
+    return doubleMatrixOperation.cholesky(m);
+  }
+
+  /**
+   * Solves the system for every row of {@code b}, eliminating only once. The rows of the result
+   * are the solutions belonging to the rows of {@code b}.
+   */
+  public Matrix solveLinearSystems(Matrix a, Matrix b) {
+    if (a.getRowNum() != b.getColumnNum()) {
       throw new InvalidOperationParameterRuntimeError(
           "Linear equation system solving parameters' row number don't match!");
     }
 
-    Rational aValue[][] = new Rational[a.getRowNum()][a.getColumnNum()];
-    for (int i = 0; i < a.getRowNum(); i++) {
-      aValue[i] = a.getValue()[i].clone();
+    if (numericMode == NumericMode.DOUBLE) {
+      return doubleMatrixOperation.solveLinearSystems(a, b);
     }
 
-    Rational bValue[] = v.getValue()[0].clone();
+    LDLDecomposition symmetric = symmetricDecomposition(a, minimumPivot());
 
-    int N = v.getColumnNum();
+    if (symmetric != null) {
+      return solveRows(b, symmetric::solve);
+    }
 
-    for (int p = 0; p < N; p++) {
+    return solveWithDecomposition(decomposeNonSingular(a), b);
+  }
 
-      // find pivot row and swap
-      int max = p;
-      for (int i = p + 1; i < N; i++) {
-        if (logicOperation
-            .greaterThan(rationalOperation.abs(aValue[i][p]), rationalOperation.abs(aValue[max][p]))
-            .equals(Rational.TRUE)) {
-          max = i;
-        }
-      }
+  public Matrix solveWithDecomposition(LUDecomposition decomposition, Matrix b) {
+    if (b.getColumnNum() != decomposition.getSize()) {
+      throw new InvalidOperationParameterRuntimeError(
+          "Right-hand sides must be row vectors matching the size of the system!");
+    }
 
-      Rational[] temp = aValue[p];
-      aValue[p] = aValue[max];
-      aValue[max] = temp;
+    return solveRows(b, decomposition::solve);
+  }
 
-      Rational t = bValue[p];
-      bValue[p] = bValue[max];
-      bValue[max] = t;
+  private Matrix solveRows(Matrix b, UnaryOperator<Rational[]> solver) {
+    Rational[][] x = new Rational[b.getRowNum()][];
 
-      // singular or nearly singular
-      if (logicOperation.lessThanOrEqual(rationalOperation.abs(aValue[p][p]), epsilon)
-          .equals(Rational.TRUE)) {
-        throw new InvalidOperationParameterRuntimeError("Matrix is singular or nearly singular");
-      }
+    parallelExecution.forEach(0, b.getRowNum(), r -> x[r] = solver.apply(b.getValue()[r]));
 
-      // pivot within A and b
-      for (int i = p + 1; i < N; i++) {
-        Rational alpha = rationalOperation.divide(aValue[i][p], aValue[p][p]);
-        bValue[i] =
-            rationalOperation.subtract(bValue[i], rationalOperation.multiply(alpha, bValue[p]));
-        for (int j = p; j < N; j++) {
-          aValue[i][j] =
-              rationalOperation
-                  .subtract(aValue[i][j], rationalOperation.multiply(alpha, aValue[p][j]));
-        }
+    return new Matrix(x);
+  }
+
+  // LDL^T of a matrix that promises to be definite, i.e. is symmetric with a positive diagonal.
+  // Null if it isn't, or as soon as the factorization meets a pivot of at most minPivot, then LU
+  // has to decide, as its pivoting may avoid that pivot.
+  private static LDLDecomposition symmetricDecomposition(Matrix a, Rational minPivot) {
+    if (!a.getStructure().isSymmetric()) {
+      return null;
+    }
+
+    for (int i = 0; i < a.getRowNum(); ++i) {
+      if (a.getValueAtPosition(i, i).signum() <= 0) {
+        return null;
       }
     }
 
-    // back substitution
-    Rational[][] x = new Rational[1][N];
-    for (int i = N - 1; i >= 0; i--) {
-      Rational sum = new Rational(BigInteger.ZERO, BigInteger.ONE);
-      for (int j = i + 1; j < N; j++) {
-        sum = rationalOperation.add(sum, rationalOperation.multiply(aValue[i][j], x[0][j]));
+    return LDLDecomposition.decomposeNonSingular(a, minPivot);
+  }
+
+  // Magnitude up to which the elimination paths reject a pivot as (nearly) zero
+  private Rational minimumPivot() {
+    return pivotStrategy.rejectsTinyPivots() ? epsilon : new Rational(0L, 1L);
+  }
+
+  private LUDecomposition decomposeNonSingular(Matrix a) {
+    LUDecomposition decomposition = LUDecomposition.decompose(a, pivotStrategy);
+
+    if (decomposition.isSingular()) {
+      throw new InvalidOperationParameterRuntimeError("Matrix is singular or nearly singular");
+    }
+
+    if (pivotStrategy.rejectsTinyPivots()) {
+      for (int p = 0; p < decomposition.getSize(); ++p) {
+        // singular or nearly singular
+        if (logicOperation.compareMagnitude(decomposition.getPivot(p), epsilon) <= 0) {
+          throw new InvalidOperationParameterRuntimeError("Matrix is singular or nearly singular");
+        }
       }
-      x[0][i] = rationalOperation.divide(rationalOperation.subtract(bValue[i], sum), aValue[i][i]);
     }
 
-    return new Matrix(x);
+    return decomposition;
   }
 
   public Matrix eigenValues(Matrix m) {
@@ -434,11 +722,11 @@ public class MatrixOperation {
         mValue[i] = m.getValue()[i].clone();
       }
 
-      Rational a = new Rational(BigInteger.ONE, BigInteger.ONE);
+      Rational a = new Rational(1L, 1L);
 
       Rational b = rationalOperation.subtract(
           rationalOperation
-              .multiply(new Rational(BigInteger.valueOf(-1L), BigInteger.ONE), mValue[0][0]),
+              .multiply(new Rational(-1L, 1L), mValue[0][0]),
           mValue[1][1]);
 
       Rational c = rationalOperation.subtract(
@@ -451,7 +739,7 @@ public class MatrixOperation {
               rationalOperation.multiply(b, b),
               rationalOperation.multiply(
                   rationalOperation.multiply(
-                      new Rational(BigInteger.valueOf(4L), BigInteger.ONE),
+                      new Rational(4L, 1L),
                       a
                   ),
                   c
@@ -467,7 +755,7 @@ public class MatrixOperation {
           rationalOperation.divide(
               rationalOperation.add(minusB, root),
               rationalOperation.multiply(
-                  new Rational(BigInteger.valueOf(2L), BigInteger.ONE),
+                  new Rational(2L, 1L),
                   a
               )
           );
@@ -476,7 +764,7 @@ public class MatrixOperation {
           rationalOperation.divide(
               rationalOperation.subtract(minusB, root),
               rationalOperation.multiply(
-                  new Rational(BigInteger.valueOf(2L), BigInteger.ONE),
+                  new Rational(2L, 1L),
                   a
               )
           );
@@ -499,7 +787,7 @@ public class MatrixOperation {
 
   public Matrix eigenVectors(Matrix m) {
     if (m.getRowNum() == 1 && m.getColumnNum() == 1) {
-      Rational[][] oneMatrix = {{new Rational(BigInteger.ONE, BigInteger.ONE)}};
+      Rational[][] oneMatrix = {{new Rational(1L, 1L)}};
 
       return new Matrix(oneMatrix);
     } else if (m.getRowNum() == 2 && m.getColumnNum() == 2) {
@@ -512,14 +800,14 @@ public class MatrixOperation {
       Rational eValues[] = eigenValues(m).getValue()[0];
       Rational eVectors[][] = new Rational[2][2];
 
-      Rational zeroRational = new Rational(BigInteger.ZERO, BigInteger.ONE);
+      Rational zeroRational = new Rational(0L, 1L);
 
       if (mValue[0][1].isEqual(zeroRational) && mValue[1][0].isEqual(zeroRational)) {
-        eVectors[0][0] = new Rational(BigInteger.ONE, BigInteger.ONE);
-        eVectors[0][1] = new Rational(BigInteger.ZERO, BigInteger.ONE);
+        eVectors[0][0] = new Rational(1L, 1L);
+        eVectors[0][1] = new Rational(0L, 1L);
 
-        eVectors[1][0] = new Rational(BigInteger.ZERO, BigInteger.ONE);
-        eVectors[1][1] = new Rational(BigInteger.ONE, BigInteger.ONE);
+        eVectors[1][0] = new Rational(0L, 1L);
+        eVectors[1][1] = new Rational(1L, 1L);
 
         return new Matrix(eVectors);
       }
@@ -567,6 +855,293 @@ public class MatrixOperation {
   }
 
 
+  private static Matrix identity(int n) {
+    long[] numerators = new long[n * n];
+    long[] denominators = new long[n * n];
+
+    Arrays.fill(denominators, 1L);
+    for (int i = 0; i < n; ++i) {
+      numerators[i * n + i] = 1L;
+    }
+
+    return new Matrix(new LongMatrixStorage(n, n, numerators, denominators));
+  }
+
+  // Element-wise a + b or a - b on long storage, throws ArithmeticException on overflow
+  private Matrix addLong(LongMatrixStorage a, LongMatrixStorage b, boolean subtract) {
+    long[] aNumerators = a.getNumerators();
+    long[] aDenominators = a.getDenominators();
+    long[] bNumerators = b.getNumerators();
+    long[] bDenominators = b.getDenominators();
+
+    long[] numerators = new long[aNumerators.length];
+    long[] denominators = new long[aNumerators.length];
+
+    for (int i = 0; i < numerators.length; ++i) {
+      long bNumerator = subtract ? Math.negateExact(bNumerators[i]) : bNumerators[i];
+
+      if (aDenominators[i] == bDenominators[i]) {
+        numerators[i] = Math.addExact(aNumerators[i], bNumerator);
+        denominators[i] = aDenominators[i];
+      } else {
+        numerators[i] = Math.addExact(Math.multiplyExact(aNumerators[i], bDenominators[i]),
+            Math.multiplyExact(bNumerator, aDenominators[i]));
+        denominators[i] = Math.multiplyExact(aDenominators[i], bDenominators[i]);
+      }
+
+      reduce(numerators, denominators, i);
+    }
+
+    return new Matrix(
+        new LongMatrixStorage(a.getRowNum(), a.getColumnNum(), numerators, denominators));
+  }
+
+  // Throws ArithmeticException on overflow
+  private Matrix multiplyLong(LongMatrixStorage a, LongMatrixStorage b) {
+    int rowNum = a.getRowNum();
+    int innerNum = a.getColumnNum();
+    int columnNum = b.getColumnNum();
+
+    long[] aNumerators = a.getNumerators();
+    long[] aDenominators = a.getDenominators();
+
+    // b transposed, so the inner loop scans both operands sequentially
+    long[] bNumerators = new long[innerNum * columnNum];
+    long[] bDenominators = new long[innerNum * columnNum];
+
+    for (int i = 0; i < innerNum; ++i) {
+      for (int c = 0; c < columnNum; ++c) {
+        bNumerators[c * innerNum + i] = b.getNumerators()[i * columnNum + c];
+        bDenominators[c * innerNum + i] = b.getDenominators()[i * columnNum + c];
+      }
+    }
+
+    long[] numerators = new long[rowNum * columnNum];
+    long[] denominators = new long[rowNum * columnNum];
+
+    forEachProductElement(rowNum, columnNum, (r, c) -> {
+      long sumNumerator = 0L;
+      long sumDenominator = 1L;
+
+      for (int i = 0; i < innerNum; ++i) {
+        long numerator =
+            Math.multiplyExact(aNumerators[r * innerNum + i], bNumerators[c * innerNum + i]);
+
+        if (numerator == 0L) {
+          continue;
+        }
+
+        long denominator =
+            Math.multiplyExact(aDenominators[r * innerNum + i], bDenominators[c * innerNum + i]);
+
+        if (denominator == sumDenominator) {
+          sumNumerator = Math.addExact(sumNumerator, numerator);
+        } else {
+          // Bring both to the least common denominator
+          long gcd = greatestCommonDivisor(sumDenominator, denominator);
+
+          sumNumerator = Math.addExact(Math.multiplyExact(sumNumerator, denominator / gcd),
+              Math.multiplyExact(numerator, sumDenominator / gcd));
+          sumDenominator = Math.multiplyExact(sumDenominator, denominator / gcd);
+        }
+      }
+
+      numerators[r * columnNum + c] = sumNumerator;
+      denominators[r * columnNum + c] = sumDenominator;
+
+      reduce(numerators, denominators, r * columnNum + c);
+    });
+
+    return new Matrix(new LongMatrixStorage(rowNum, columnNum, numerators, denominators));
+  }
+
+  /**
+   * Calls {@code body} for every element of a {@code rowNum x columnNum} product. The output is
+   * split into square tiles, so the operand rows and columns a tile reads stay in cache while it
+   * is computed, and the tiles are distributed over the {@link ParallelExecution} pool.
+   */
+  private void forEachProductElement(int rowNum, int columnNum, ProductElement body) {
+    int tileSize = multiplyTileSize;
+    int rowTiles = (rowNum + tileSize - 1) / tileSize;
+    int columnTiles = (columnNum + tileSize - 1) / tileSize;
+
+    parallelExecution.forEach(0, rowTiles * columnTiles, rowNum, tile -> {
+      int rowFrom = tile / columnTiles * tileSize;
+      int columnFrom = tile % columnTiles * tileSize;
+
+      for (int r = rowFrom; r < Math.min(rowFrom + tileSize, rowNum); ++r) {
+        for (int c = columnFrom; c < Math.min(columnFrom + tileSize, columnNum); ++c) {
+          body.compute(r, c);
+        }
+      }
+    });
+  }
+
+  // Sum of the products on the least common denominator, reduced only once at the end
+  private Rational dotProduct(Rational[] row, Rational[] column) {
+    RationalAccumulator sum = new RationalAccumulator();
+
+    for (int i = 0; i < row.length; ++i) {
+      sum.addProduct(row[i], column[i]);
+    }
+
+    return sum.toRational();
+  }
+
+  // Throws ArithmeticException on overflow
+  private Matrix scalarMultiplyLong(LongMatrixStorage a, long scalarNumerator,
+                                    long scalarDenominator) {
+    long[] aNumerators = a.getNumerators();
+    long[] aDenominators = a.getDenominators();
+
+    long[] numerators = new long[aNumerators.length];
+    long[] denominators = new long[aNumerators.length];
+
+    for (int i = 0; i < numerators.length; ++i) {
+      numerators[i] = Math.multiplyExact(aNumerators[i], scalarNumerator);
+      denominators[i] = Math.multiplyExact(aDenominators[i], scalarDenominator);
+
+      reduce(numerators, denominators, i);
+    }
+
+    return new Matrix(
+        new LongMatrixStorage(a.getRowNum(), a.getColumnNum(), numerators, denominators));
+  }
+
+  // Element-wise a + b or a - b on the least common denominator
+  private Matrix addInteger(IntegerMatrixStorage a, IntegerMatrixStorage b, boolean subtract) {
+    BigInteger gcd = a.getDenominator().gcd(b.getDenominator());
+    BigInteger aFactor = b.getDenominator().divide(gcd);
+    BigInteger bFactor = a.getDenominator().divide(gcd);
+
+    BigInteger[] aNumerators = a.getNumerators();
+    BigInteger[] bNumerators = b.getNumerators();
+    BigInteger[] numerators = new BigInteger[aNumerators.length];
+
+    for (int i = 0; i < numerators.length; ++i) {
+      BigInteger aNumerator = aNumerators[i].multiply(aFactor);
+      BigInteger bNumerator = bNumerators[i].multiply(bFactor);
+
+      numerators[i] = subtract ? aNumerator.subtract(bNumerator) : aNumerator.add(bNumerator);
+    }
+
+    return new Matrix(IntegerMatrixStorage.reduced(a.getRowNum(), a.getColumnNum(), numerators,
+        a.getDenominator().multiply(aFactor)));
+  }
+
+  // Integer product of the numerators over the product of the denominators
+  private Matrix multiplyInteger(IntegerMatrixStorage a, IntegerMatrixStorage b) {
+    int rowNum = a.getRowNum();
+    int innerNum = a.getColumnNum();
+    int columnNum = b.getColumnNum();
+
+    BigInteger[] aNumerators = a.getNumerators();
+
+    if (rowNum == innerNum && innerNum == columnNum
+        && strassenMultiplication.isPreferred(rowNum,
+        Math.max(StrassenMultiplication.maxBitLength(aNumerators),
+            StrassenMultiplication.maxBitLength(b.getNumerators())))) {
+      return new Matrix(IntegerMatrixStorage.reduced(rowNum, columnNum,
+          strassenMultiplication.multiply(aNumerators, b.getNumerators(), rowNum),
+          a.getDenominator().multiply(b.getDenominator())));
+    }
+
+    // b transposed, so the inner loop scans both operands sequentially
+    BigInteger[] bNumerators = new BigInteger[innerNum * columnNum];
+
+    for (int i = 0; i < innerNum; ++i) {
+      for (int c = 0; c < columnNum; ++c) {
+        bNumerators[c * innerNum + i] = b.getNumerators()[i * columnNum + c];
+      }
+    }
+
+    BigInteger[] numerators = new BigInteger[rowNum * columnNum];
+
+    forEachProductElement(rowNum, columnNum, (r, c) -> {
+      BigInteger sum = BigInteger.ZERO;
+
+      for (int i = 0; i < innerNum; ++i) {
+        BigInteger aNumerator = aNumerators[r * innerNum + i];
+        BigInteger bNumerator = bNumerators[c * innerNum + i];
+
+        if (aNumerator.signum() != 0 && bNumerator.signum() != 0) {
+          sum = sum.add(aNumerator.multiply(bNumerator));
+        }
+      }
+
+      numerators[r * columnNum + c] = sum;
+    });
+
+    return new Matrix(IntegerMatrixStorage.reduced(rowNum, columnNum, numerators,
+        a.getDenominator().multiply(b.getDenominator())));
+  }
+
+  // Brings element i to the reduced form LongMatrixStorage expects
+  private static void reduce(long[] numerators, long[] denominators, int i) {
+    if (denominators[i] == 1L && numerators[i] != Long.MIN_VALUE) {
+      return;
+    }
+
+    long gcd = greatestCommonDivisor(numerators[i], denominators[i]);
+
+    numerators[i] /= gcd;
+    denominators[i] /= gcd;
+  }
+
+  // Throws ArithmeticException for Long.MIN_VALUE, which has no long absolute value
+  private static long greatestCommonDivisor(long a, long b) {
+    if (a == Long.MIN_VALUE || b == Long.MIN_VALUE) {
+      throw new ArithmeticException("long overflow");
+    }
+
+    a = Math.abs(a);
+    b = Math.abs(b);
+
+    while (b != 0L) {
+      long t = a % b;
+      a = b;
+      b = t;
+    }
+
+    return a;
+  }
+
+  private static boolean isLongStorage(Matrix m) {
+    return m.getStorage() instanceof LongMatrixStorage;
+  }
+
+  private static LongMatrixStorage longStorage(Matrix m) {
+    return (LongMatrixStorage) m.getStorage();
+  }
+
+  private static boolean isSparseStorage(Matrix m) {
+    return m.getStorage() instanceof SparseMatrixStorage;
+  }
+
+  private static SparseMatrixStorage sparseStorage(Matrix m) {
+    return (SparseMatrixStorage) m.getStorage();
+  }
+
+  private static boolean isIntegerStorage(Matrix m) {
+    return m.getStorage() instanceof IntegerMatrixStorage;
+  }
+
+  // Common denominator form of m, null if it has no cheap one
+  private static IntegerMatrixStorage integerStorage(Matrix m) {
+    if (isIntegerStorage(m)) {
+      return (IntegerMatrixStorage) m.getStorage();
+    }
+
+    return IntegerMatrixStorage.fromRationals(m.getValue());
+  }
+
+  @FunctionalInterface
+  private interface ProductElement {
+
+    void compute(int row, int column);
+
+  }
+
   private boolean isMatchingMatrices(Matrix a, Matrix b) {
     return a.getRowNum() == b.getRowNum() && a.getColumnNum() == b.getColumnNum();
   }
@@ -0,0 +1,29 @@
+package com.fordprog.matrix.interpreter.execution.stdlib;
+
+import com.fordprog.matrix.interpreter.type.Rational;
+
+/**
+ * Pivoting for exact arithmetic: the magnitude of a pivot does not matter, but its size does, as
+ * every update of the step multiplies and divides by it. Picks the non-zero element with the
+ * smallest combined numerator and denominator bit-length, the first one on ties.
+ */
+public class MinimalSizePivotStrategy implements PivotStrategy {
+
+  @Override
+  public int selectPivot(Rational[][] rows, int column, int from) {
+    int pivot = from;
+    int pivotSize = Integer.MAX_VALUE;
+
+    for (int i = from; i < rows.length; ++i) {
+      Rational element = rows[i][column];
+
+      if (element.signum() != 0 && element.bitLength() < pivotSize) {
+        pivot = i;
+        pivotSize = element.bitLength();
+      }
+    }
+
+    return pivot;
+  }
+
+}
@@ -0,0 +1,446 @@
+package com.fordprog.matrix.interpreter.execution.stdlib;
+
+import com.fordprog.matrix.interpreter.error.runtime.InvalidOperationParameterRuntimeError;
+import com.fordprog.matrix.interpreter.type.IntegerMatrixStorage;
+import com.fordprog.matrix.interpreter.type.Rational;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Exact determinant, rank and inverse computed modulo many word-sized primes. The rows are scaled
+ * to integers first, every prime is handled independently with plain {@code long} arithmetic (on
+ * the {@link ParallelExecution} pool) and the exact integers are rebuilt with the Chinese
+ * Remainder Theorem. Hadamard's bound tells how many primes are needed, so the results are
+ * deterministic.
+ */
+public class MultiModularEngine {
+
+  private static MultiModularEngine instance = new MultiModularEngine();
+
+  // Every prime is above 2^30, so k primes cover 30 * k bits
+  private static final int PRIME_BITS = 30;
+
+  private final ParallelExecution parallelExecution;
+
+  private final List<Long> primes;
+
+  private volatile int threshold;
+
+  private MultiModularEngine() {
+    parallelExecution = ParallelExecution.getInstance();
+    primes = new ArrayList<>();
+    threshold = 40;
+  }
+
+  public static MultiModularEngine getInstance() {
+    return instance;
+  }
+
+  public int getThreshold() {
+    return threshold;
+  }
+
+  /**
+   * Sets the matrix size from which determinant and inverse are computed by this engine.
+   */
+  public void setThreshold(int threshold) {
+    this.threshold = threshold;
+  }
+
+  public boolean isPreferred(int size) {
+    return size >= threshold;
+  }
+
+  public Rational determinant(Rational[][] value) {
+    RowScaledIntegerMatrix scaled = RowScaledIntegerMatrix.fromRationals(value);
+    BigInteger[][] rows = scaled.getRows();
+
+    long[] primes = primes(primeCount(hadamardBits(rows, rows.length)));
+    long[] residues = new long[primes.length];
+
+    parallelExecution.forEach(0, primes.length, rows.length,
+        i -> residues[i] = determinantModulo(reduce(rows, primes[i]), primes[i]));
+
+    return new Rational(new ChineseRemainder(primes).combine(residues), scaled.getScaleProduct());
+  }
+
+  public int rank(Rational[][] value) {
+    BigInteger[][] rows = RowScaledIntegerMatrix.fromRationals(value).getRows();
+    int maxRank = Math.min(rows.length, rows[0].length);
+
+    // A non-vanishing minor of the full rank is divisible by fewer primes than these
+    long[] primes = primes(primeCount(hadamardBits(rows, maxRank)));
+    int[] ranks = new int[primes.length];
+
+    parallelExecution.forEach(0, primes.length, rows.length,
+        i -> ranks[i] = rankModulo(reduce(rows, primes[i]), primes[i]));
+
+    return Arrays.stream(ranks).max().orElse(0);
+  }
+
+  public IntegerMatrixStorage inverse(Rational[][] value) {
+    RowScaledIntegerMatrix scaled = RowScaledIntegerMatrix.fromRationals(value);
+    BigInteger[][] rows = scaled.getRows();
+    int n = rows.length;
+
+    // Bounds both the determinant and every cofactor
+    int needed = primeCount(hadamardBits(rows, n));
+
+    List<Long> lucky = new ArrayList<>();
+    List<long[][]> adjugates = new ArrayList<>();
+    List<Long> determinants = new ArrayList<>();
+
+    int used = 0;
+    while (lucky.size() < needed) {
+      long[] batch = Arrays.copyOfRange(primes(used + needed - lucky.size()), used,
+          used + needed - lucky.size());
+      long[][][] batchAdjugates = new long[batch.length][][];
+      long[] batchDeterminants = new long[batch.length];
+
+      parallelExecution.forEach(0, batch.length, n, i -> {
+        long[][] adjugate = new long[n][n];
+        batchDeterminants[i] = adjugateModulo(reduce(rows, batch[i]), batch[i], adjugate);
+        batchAdjugates[i] = adjugate;
+      });
+
+      for (int i = 0; i < batch.length; ++i) {
+        if (batchDeterminants[i] != 0L) {
+          lucky.add(batch[i]);
+          adjugates.add(batchAdjugates[i]);
+          determinants.add(batchDeterminants[i]);
+        }
+      }
+
+      used += batch.length;
+
+      // The determinant vanishes modulo all of the first primes only if it is zero
+      if (lucky.isEmpty() && used >= needed) {
+        throw new InvalidOperationParameterRuntimeError("Matrix is singular");
+      }
+    }
+
+    long[] luckyPrimes = lucky.stream().mapToLong(Long::longValue).toArray();
+    ChineseRemainder chineseRemainder = new ChineseRemainder(luckyPrimes);
+
+    BigInteger determinant = chineseRemainder.combine(
+        determinants.stream().mapToLong(Long::longValue).toArray());
+
+    if (determinant.signum() == 0) {
+      throw new InvalidOperationParameterRuntimeError("Matrix is singular");
+    }
+
+    // inverse(S * M) = inverse(M) * inverse(S), so column j gets multiplied by scale j
+    BigInteger[] scales = scaled.getScales();
+    BigInteger[] inverse = new BigInteger[n * n];
+    long[] residues = new long[luckyPrimes.length];
+
+    for (int i = 0; i < n; ++i) {
+      for (int j = 0; j < n; ++j) {
+        for (int k = 0; k < luckyPrimes.length; ++k) {
+          residues[k] = adjugates.get(k)[i][j];
+        }
+
+        BigInteger adjugate = chineseRemainder.combine(residues);
+
+        inverse[i * n + j] = adjugate.multiply(scales[j]);
+      }
+    }
+
+    // Every element shares the determinant as denominator
+    if (determinant.signum() < 0) {
+      for (int i = 0; i < inverse.length; ++i) {
+        inverse[i] = inverse[i].negate();
+      }
+    }
+
+    return IntegerMatrixStorage.reduced(n, n, inverse, determinant.abs());
+  }
+
+  // Upper bound for log2 of the largest minor made of `count` rows
+  int hadamardBits(BigInteger[][] rows, int count) {
+    int[] rowBits = new int[rows.length];
+
+    for (int r = 0; r < rows.length; ++r) {
+      BigInteger normSquare = BigInteger.ZERO;
+      for (BigInteger element : rows[r]) {
+        normSquare = normSquare.add(element.multiply(element));
+      }
+      rowBits[r] = (normSquare.bitLength() + 1) / 2;
+    }
+
+    Arrays.sort(rowBits);
+
+    int bits = 0;
+    for (int i = rowBits.length - 1; i >= rowBits.length - count; --i) {
+      bits += rowBits[i];
+    }
+
+    return bits;
+  }
+
+  // Primes whose product exceeds 2^(bits + 1), enough for a symmetric residue
+  int primeCount(int bits) {
+    return (bits + 1) / PRIME_BITS + 1;
+  }
+
+  long[] primes(int count) {
+    synchronized (primes) {
+      long candidate = primes.isEmpty() ? Integer.MAX_VALUE : primes.get(primes.size() - 1) - 2;
+
+      while (primes.size() < count) {
+        if (BigInteger.valueOf(candidate).isProbablePrime(40)) {
+          primes.add(candidate);
+        }
+        candidate -= 2;
+      }
+
+      return primes.subList(0, count).stream().mapToLong(Long::longValue).toArray();
+    }
+  }
+
+  long[][] reduce(BigInteger[][] rows, long prime) {
+    BigInteger modulus = BigInteger.valueOf(prime);
+    long[][] reduced = new long[rows.length][rows[0].length];
+
+    for (int r = 0; r < rows.length; ++r) {
+      for (int c = 0; c < rows[r].length; ++c) {
+        reduced[r][c] = rows[r][c].mod(modulus).longValue();
+      }
+    }
+
+    return reduced;
+  }
+
+  private long determinantModulo(long[][] a, long p) {
+    int n = a.length;
+    long determinant = 1L;
+
+    for (int k = 0; k < n; ++k) {
+      int pivot = findPivot(a, k, k);
+
+      if (pivot < 0) {
+        return 0L;
+      }
+
+      if (pivot != k) {
+        swap(a, k, pivot);
+        determinant = p - determinant;
+      }
+
+      determinant = determinant * a[k][k] % p;
+      eliminateBelow(a, k, k, p);
+    }
+
+    return determinant;
+  }
+
+  private int rankModulo(long[][] a, long p) {
+    int rank = 0;
+
+    for (int c = 0; c < a[0].length && rank < a.length; ++c) {
+      int pivot = findPivot(a, rank, c);
+
+      if (pivot >= 0) {
+        swap(a, rank, pivot);
+        eliminateBelow(a, rank, c, p);
+        ++rank;
+      }
+    }
+
+    return rank;
+  }
+
+  /**
+   * Returns det(A) mod p and, if it is non-zero, stores {@code det(A) * inverse(A)} mod p in
+   * {@code adjugate}.
+   */
+  private long adjugateModulo(long[][] a, long p, long[][] adjugate) {
+    int n = a.length;
+    long determinant = invertModulo(a, p, adjugate);
+
+    for (int i = 0; i < n; ++i) {
+      for (int j = 0; j < n; ++j) {
+        adjugate[i][j] = adjugate[i][j] * determinant % p;
+      }
+    }
+
+    return determinant;
+  }
+
+  /**
+   * Gauss-Jordan elimination of {@code [A | I]}, {@code a} is overwritten. Returns det(A) mod p
+   * and, if it is non-zero, stores the inverse of A mod p in {@code inverse}.
+   */
+  long invertModulo(long[][] a, long p, long[][] inverse) {
+    int n = a.length;
+    long determinant = 1L;
+
+    for (int i = 0; i < n; ++i) {
+      Arrays.fill(inverse[i], 0L);
+      inverse[i][i] = 1L;
+    }
+
+    for (int k = 0; k < n; ++k) {
+      int pivot = findPivot(a, k, k);
+
+      if (pivot < 0) {
+        return 0L;
+      }
+
+      if (pivot != k) {
+        swap(a, k, pivot);
+        swap(inverse, k, pivot);
+        determinant = p - determinant;
+      }
+
+      determinant = determinant * a[k][k] % p;
+
+      long pivotInverse = inverseModulo(a[k][k], p);
+      scaleRow(a[k], pivotInverse, p);
+      scaleRow(inverse[k], pivotInverse, p);
+
+      for (int i = 0; i < n; ++i) {
+        long factor = a[i][k];
+
+        if (i != k && factor != 0L) {
+          subtractRow(a[i], a[k], factor, p);
+          subtractRow(inverse[i], inverse[k], factor, p);
+        }
+      }
+    }
+
+    return determinant;
+  }
+
+  private int findPivot(long[][] a, int fromRow, int column) {
+    for (int i = fromRow; i < a.length; ++i) {
+      if (a[i][column] != 0L) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  private void eliminateBelow(long[][] a, int row, int column, long p) {
+    long pivotInverse = inverseModulo(a[row][column], p);
+
+    for (int i = row + 1; i < a.length; ++i) {
+      long factor = a[i][column] * pivotInverse % p;
+
+      if (factor != 0L) {
+        subtractRow(a[i], a[row], factor, p);
+      }
+    }
+  }
+
+  // target -= factor * source (mod p), all values in [0, p)
+  private void subtractRow(long[] target, long[] source, long factor, long p) {
+    long negated = p - factor;
+
+    for (int j = 0; j < target.length; ++j) {
+      if (source[j] != 0L) {
+        target[j] = (target[j] + negated * source[j]) % p;
+      }
+    }
+  }
+
+  private void scaleRow(long[] row, long factor, long p) {
+    for (int j = 0; j < row.length; ++j) {
+      row[j] = row[j] * factor % p;
+    }
+  }
+
+  private void swap(long[][] a, int i, int j) {
+    long[] temp = a[i];
+    a[i] = a[j];
+    a[j] = temp;
+  }
+
+  static long inverseModulo(long a, long p) {
+    long t = 0L;
+    long newT = 1L;
+    long r = p;
+    long newR = a;
+
+    while (newR != 0L) {
+      long quotient = r / newR;
+
+      long temp = t - quotient * newT;
+      t = newT;
+      newT = temp;
+
+      temp = r - quotient * newR;
+      r = newR;
+      newR = temp;
+    }
+
+    return t < 0L ? t + p : t;
+  }
+
+  /**
+   * Garner's mixed-radix reconstruction for a fixed set of moduli, returning the symmetric
+   * representative of the combined residue. The mixed-radix digits are computed with longs, only
+   * the final assembly uses BigInteger.
+   */
+  static class ChineseRemainder {
+
+    private final long[] primes;
+
+    // Inverse of the product of the preceding primes modulo primes[i]
+    private final long[] coefficients;
+
+    private final BigInteger modulus;
+
+    private final BigInteger halfModulus;
+
+    ChineseRemainder(long[] primes) {
+      this.primes = primes;
+      this.coefficients = new long[primes.length];
+
+      BigInteger product = BigInteger.ONE;
+      for (int i = 0; i < primes.length; ++i) {
+        long p = primes[i];
+        long precedingProduct = 1L;
+
+        for (int j = 0; j < i; ++j) {
+          precedingProduct = precedingProduct * (primes[j] % p) % p;
+        }
+
+        coefficients[i] = inverseModulo(precedingProduct, p);
+        product = product.multiply(BigInteger.valueOf(p));
+      }
+
+      this.modulus = product;
+      this.halfModulus = product.shiftRight(1);
+    }
+
+    BigInteger combine(long[] residues) {
+      int k = primes.length;
+      long[] digits = new long[k];
+
+      for (int i = 0; i < k; ++i) {
+        long p = primes[i];
+
+        // Value of the digits found so far, modulo p
+        long current = 0L;
+        for (int j = i - 1; j >= 0; --j) {
+          current = (current * (primes[j] % p) + digits[j]) % p;
+        }
+
+        digits[i] = (residues[i] - current + p) % p * coefficients[i] % p;
+      }
+
+      BigInteger result = BigInteger.ZERO;
+      for (int i = k - 1; i >= 0; --i) {
+        result = result.multiply(BigInteger.valueOf(primes[i])).add(BigInteger.valueOf(digits[i]));
+      }
+
+      return result.compareTo(halfModulus) > 0 ? result.subtract(modulus) : result;
+    }
+  }
+
+}
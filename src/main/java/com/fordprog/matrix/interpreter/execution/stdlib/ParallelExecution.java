@@ -0,0 +1,122 @@
+package com.fordprog.matrix.interpreter.execution.stdlib;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Fork-join pool shared by the parallel kernels of the standard library, together with the
+ * problem size above which they actually go parallel.
+ */
+public class ParallelExecution {
+
+  private static ParallelExecution instance = new ParallelExecution();
+
+  private volatile ForkJoinPool pool;
+
+  private volatile int threshold;
+
+  private ParallelExecution() {
+    pool = ForkJoinPool.commonPool();
+    threshold = 64;
+  }
+
+  public static ParallelExecution getInstance() {
+    return instance;
+  }
+
+  public int getParallelism() {
+    return pool.getParallelism();
+  }
+
+  /**
+   * Sets the number of worker threads, 1 turns parallel execution off.
+   */
+  public void setParallelism(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Thread count must be positive: " + threads);
+    }
+
+    ForkJoinPool previous = pool;
+
+    pool = new ForkJoinPool(threads);
+
+    if (previous != ForkJoinPool.commonPool()) {
+      previous.shutdown();
+    }
+  }
+
+  public int getThreshold() {
+    return threshold;
+  }
+
+  /**
+   * Sets the problem size (e.g. number of rows) from which kernels run in parallel.
+   */
+  public void setThreshold(int threshold) {
+    this.threshold = threshold;
+  }
+
+  public boolean isParallel(int size) {
+    return size >= threshold && pool.getParallelism() > 1;
+  }
+
+  /**
+   * Runs {@code body} for every index in {@code [from, to)}, splitting the range across the pool
+   * when {@code to - from} reaches the threshold.
+   */
+  public void forEach(int from, int to, IntConsumer body) {
+    forEach(from, to, to - from, body);
+  }
+
+  /**
+   * Runs {@code body} for every index in {@code [from, to)}, splitting the range across the pool
+   * when {@code size} reaches the threshold. Useful when every index stands for a large task.
+   */
+  public void forEach(int from, int to, int size, IntConsumer body) {
+    if (!isParallel(size)) {
+      for (int i = from; i < to; ++i) {
+        body.accept(i);
+      }
+
+      return;
+    }
+
+    int grain = Math.max(1, (to - from) / (pool.getParallelism() * 4));
+
+    pool.invoke(new RangeAction(from, to, grain, body));
+  }
+
+  private static class RangeAction extends RecursiveAction {
+
+    private final int from;
+
+    private final int to;
+
+    private final int grain;
+
+    private final IntConsumer body;
+
+    private RangeAction(int from, int to, int grain, IntConsumer body) {
+      this.from = from;
+      this.to = to;
+      this.grain = grain;
+      this.body = body;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= grain) {
+        for (int i = from; i < to; ++i) {
+          body.accept(i);
+        }
+      } else {
+        int middle = (from + to) >>> 1;
+
+        invokeAll(new RangeAction(from, middle, grain, body),
+            new RangeAction(middle, to, grain, body));
+      }
+    }
+  }
+
+}
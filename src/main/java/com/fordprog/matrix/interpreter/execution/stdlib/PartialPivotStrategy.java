@@ -0,0 +1,34 @@
+package com.fordprog.matrix.interpreter.execution.stdlib;
+
+import com.fordprog.matrix.interpreter.type.Rational;
+
+/**
+ * Classic partial pivoting: the element of largest magnitude, the first one on ties.
+ */
+public class PartialPivotStrategy implements PivotStrategy {
+
+  private final LogicOperation logicOperation;
+
+  public PartialPivotStrategy() {
+    logicOperation = LogicOperation.getInstance();
+  }
+
+  @Override
+  public int selectPivot(Rational[][] rows, int column, int from) {
+    int pivot = from;
+
+    for (int i = from + 1; i < rows.length; ++i) {
+      if (logicOperation.compareMagnitude(rows[i][column], rows[pivot][column]) > 0) {
+        pivot = i;
+      }
+    }
+
+    return pivot;
+  }
+
+  @Override
+  public boolean rejectsTinyPivots() {
+    return true;
+  }
+
+}
@@ -0,0 +1,24 @@
+package com.fordprog.matrix.interpreter.execution.stdlib;
+
+import com.fordprog.matrix.interpreter.type.Rational;
+
+/**
+ * Chooses the pivot row of an elimination step in {@link LUDecomposition}.
+ */
+public interface PivotStrategy {
+
+  /**
+   * Returns the row in {@code [from, rows.length)} whose element in {@code column} becomes the
+   * pivot. Returns {@code from} if the whole column is zero.
+   */
+  int selectPivot(Rational[][] rows, int column, int from);
+
+  /**
+   * Tells whether the pivots picked by this strategy are the largest available, so a tiny pivot
+   * means the matrix is (nearly) singular.
+   */
+  default boolean rejectsTinyPivots() {
+    return false;
+  }
+
+}
@@ -0,0 +1,168 @@
+package com.fordprog.matrix.interpreter.execution.stdlib;
+
+import com.fordprog.matrix.interpreter.type.Rational;
+
+import java.math.BigInteger;
+
+/**
+ * Mutable sum of rationals and products of rationals, for the inner loops of dot products and
+ * substitutions. Terms are added on the least common denominator without creating intermediate
+ * {@link Rational}s, and the sum is only reduced when {@link #toRational()} creates the result.
+ * The sum is kept in two longs while it fits and moves to {@link BigInteger}s on overflow.
+ *
+ * <p>Not thread-safe, use one accumulator per thread.
+ */
+public class RationalAccumulator {
+
+  private boolean small;
+
+  private long longNumerator;
+
+  private long longDenominator;
+
+  private BigInteger numerator;
+
+  private BigInteger denominator;
+
+  public RationalAccumulator() {
+    reset();
+  }
+
+  public RationalAccumulator(Rational initial) {
+    reset();
+    add(initial);
+  }
+
+  public RationalAccumulator reset() {
+    small = true;
+    longNumerator = 0L;
+    longDenominator = 1L;
+    numerator = null;
+    denominator = null;
+
+    return this;
+  }
+
+  public RationalAccumulator add(Rational a) {
+    if (a.signum() == 0) {
+      return this;
+    }
+
+    if (small && a.fitsInLong()) {
+      try {
+        accumulate(a.getLongNumerator(), a.getLongDenominator());
+        return this;
+      } catch (ArithmeticException e) {
+        // Overflow, continue with BigIntegers
+      }
+    }
+
+    accumulate(a.getNumerator(), a.getDenominator());
+    return this;
+  }
+
+  /**
+   * Adds {@code a * b}.
+   */
+  public RationalAccumulator addProduct(Rational a, Rational b) {
+    return accumulateProduct(a, b, false);
+  }
+
+  /**
+   * Subtracts {@code a * b}.
+   */
+  public RationalAccumulator subtractProduct(Rational a, Rational b) {
+    return accumulateProduct(a, b, true);
+  }
+
+  public Rational toRational() {
+    if (small) {
+      return new Rational(longNumerator, longDenominator);
+    }
+
+    return new Rational(numerator, denominator);
+  }
+
+  private RationalAccumulator accumulateProduct(Rational a, Rational b, boolean negate) {
+    if (a.signum() == 0 || b.signum() == 0) {
+      return this;
+    }
+
+    if (small && a.fitsInLong() && b.fitsInLong()) {
+      try {
+        long productNumerator = Math.multiplyExact(a.getLongNumerator(), b.getLongNumerator());
+        long productDenominator =
+            Math.multiplyExact(a.getLongDenominator(), b.getLongDenominator());
+
+        accumulate(negate ? Math.negateExact(productNumerator) : productNumerator,
+            productDenominator);
+        return this;
+      } catch (ArithmeticException e) {
+        // Overflow, continue with BigIntegers
+      }
+    }
+
+    BigInteger productNumerator = a.getNumerator().multiply(b.getNumerator());
+    BigInteger productDenominator = a.getDenominator().multiply(b.getDenominator());
+
+    accumulate(negate ? productNumerator.negate() : productNumerator, productDenominator);
+    return this;
+  }
+
+  // Leaves the sum untouched when it throws ArithmeticException
+  private void accumulate(long termNumerator, long termDenominator) {
+    if (termDenominator < 0L) {
+      termNumerator = Math.negateExact(termNumerator);
+      termDenominator = Math.negateExact(termDenominator);
+    }
+
+    if (termDenominator == longDenominator) {
+      longNumerator = Math.addExact(longNumerator, termNumerator);
+      return;
+    }
+
+    long gcd = greatestCommonDivisor(longDenominator, termDenominator);
+
+    long sumNumerator = Math.addExact(Math.multiplyExact(longNumerator, termDenominator / gcd),
+        Math.multiplyExact(termNumerator, longDenominator / gcd));
+
+    longDenominator = Math.multiplyExact(longDenominator, termDenominator / gcd);
+    longNumerator = sumNumerator;
+  }
+
+  private void accumulate(BigInteger termNumerator, BigInteger termDenominator) {
+    if (small) {
+      numerator = BigInteger.valueOf(longNumerator);
+      denominator = BigInteger.valueOf(longDenominator);
+      small = false;
+    }
+
+    if (termDenominator.signum() < 0) {
+      termNumerator = termNumerator.negate();
+      termDenominator = termDenominator.negate();
+    }
+
+    if (termDenominator.equals(denominator)) {
+      numerator = numerator.add(termNumerator);
+      return;
+    }
+
+    BigInteger gcd = denominator.gcd(termDenominator);
+
+    numerator = numerator.multiply(termDenominator.divide(gcd))
+        .add(termNumerator.multiply(denominator.divide(gcd)));
+    denominator = denominator.multiply(termDenominator.divide(gcd));
+  }
+
+  // Both arguments are positive
+  private static long greatestCommonDivisor(long a, long b) {
+    while (b != 0L) {
+      long t = a % b;
+      a = b;
+      b = t;
+    }
+
+    return a;
+  }
+
+}
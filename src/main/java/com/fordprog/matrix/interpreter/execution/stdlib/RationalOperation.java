@@ -1,8 +1,8 @@
 package com.fordprog.matrix.interpreter.execution.stdlib;
 
+import com.fordprog.matrix.interpreter.error.runtime.InvalidOperationParameterRuntimeError;
 import com.fordprog.matrix.interpreter.type.Rational;
 
-import java.math.BigDecimal;
 import java.math.BigInteger;
 
 public class RationalOperation {
@@ -18,6 +18,19 @@ public class RationalOperation {
   }
 
   public Rational add(Rational a, Rational b) {
+    if (a.fitsInLong() && b.fitsInLong()) {
+      try {
+        long lcm = leastCommonDivisor(a.getLongDenominator(), b.getLongDenominator());
+
+        long aNumerator = Math.multiplyExact(a.getLongNumerator(), lcm / a.getLongDenominator());
+        long bNumerator = Math.multiplyExact(b.getLongNumerator(), lcm / b.getLongDenominator());
+
+        return new Rational(Math.addExact(aNumerator, bNumerator), lcm);
+      } catch (ArithmeticException e) {
+        // Overflow, fall back to BigInteger arithmetic
+      }
+    }
+
     BigInteger lcm = leastCommonDivisor(a.getDenominator(), b.getDenominator());
 
     BigInteger aNumerator = a.getNumerator().multiply(lcm.divide(a.getDenominator()));
@@ -27,6 +40,19 @@ public class RationalOperation {
   }
 
   public Rational subtract(Rational a, Rational b) {
+    if (a.fitsInLong() && b.fitsInLong()) {
+      try {
+        long lcm = leastCommonDivisor(a.getLongDenominator(), b.getLongDenominator());
+
+        long aNumerator = Math.multiplyExact(a.getLongNumerator(), lcm / a.getLongDenominator());
+        long bNumerator = Math.multiplyExact(b.getLongNumerator(), lcm / b.getLongDenominator());
+
+        return new Rational(Math.subtractExact(aNumerator, bNumerator), lcm);
+      } catch (ArithmeticException e) {
+        // Overflow, fall back to BigInteger arithmetic
+      }
+    }
+
     BigInteger lcm = leastCommonDivisor(a.getDenominator(), b.getDenominator());
 
     BigInteger aNumerator = a.getNumerator().multiply(lcm.divide(a.getDenominator()));
@@ -36,6 +62,17 @@ public class RationalOperation {
   }
 
   public Rational multiply(Rational a, Rational b) {
+    if (a.fitsInLong() && b.fitsInLong()) {
+      try {
+        long num = Math.multiplyExact(a.getLongNumerator(), b.getLongNumerator());
+        long den = Math.multiplyExact(a.getLongDenominator(), b.getLongDenominator());
+
+        return createSmall(num, den);
+      } catch (ArithmeticException e) {
+        // Overflow, fall back to BigInteger arithmetic
+      }
+    }
+
     BigInteger num = a.getNumerator().multiply(b.getNumerator());
     BigInteger den = a.getDenominator().multiply(b.getDenominator());
 
@@ -48,6 +85,17 @@ public class RationalOperation {
   }
 
   public Rational divide(Rational a, Rational b) {
+    if (a.fitsInLong() && b.fitsInLong()) {
+      try {
+        long num = Math.multiplyExact(a.getLongNumerator(), b.getLongDenominator());
+        long den = Math.multiplyExact(a.getLongDenominator(), b.getLongNumerator());
+
+        return createSmall(num, den);
+      } catch (ArithmeticException e) {
+        // Overflow, fall back to BigInteger arithmetic
+      }
+    }
+
     BigInteger num = a.getNumerator().multiply(b.getDenominator());
     BigInteger den = a.getDenominator().multiply(b.getNumerator());
 
@@ -59,30 +107,160 @@ public class RationalOperation {
     return new Rational(num, den);
   }
 
-  //Possible precision loss
+  /**
+   * Raises {@code a} to the power {@code b}. Integer exponents, negative ones included, are
+   * computed exactly by repeated squaring. For an exponent {@code p/q} the exact q-th root of
+   * {@code a^p} is returned if numerator and denominator are perfect q-th powers; otherwise the
+   * result is irrational, so it is approximated in double precision and converted back with
+   * {@link Rational#Rational(double)}.
+   */
   public Rational power(Rational a, Rational b) {
-    BigDecimal resultNumPart =
-        new BigDecimal(a.getNumerator()).pow(b.getNumerator().intValueExact());
+    Rational exponent = b.canonical();
+
+    if (!exponent.fitsInLong()
+        || Math.abs(exponent.getLongNumerator()) > Integer.MAX_VALUE
+        || exponent.getLongDenominator() > Integer.MAX_VALUE) {
+      throw new InvalidOperationParameterRuntimeError("Exponent is too large!");
+    }
+
+    int numerator = (int) exponent.getLongNumerator();
+    int rootDegree = (int) exponent.getLongDenominator();
+
+    if (a.signum() == 0 && numerator < 0) {
+      throw new InvalidOperationParameterRuntimeError("Zero cannot be raised to a negative power!");
+    }
 
-    double resultNumerator =
-        Math.pow(resultNumPart.doubleValue(), 1.0 / b.getDenominator().doubleValue());
+    if (a.signum() < 0 && rootDegree % 2 == 0) {
+      throw new InvalidOperationParameterRuntimeError(
+          "Negative number has no real root of even degree!");
+    }
+
+    Rational base = numerator < 0 ? divide(new Rational(1L, 1L), a) : a;
+    Rational power = integerPower(base, Math.abs(numerator));
 
-    BigDecimal resultDenPart =
-        new BigDecimal(a.getDenominator()).pow(b.getNumerator().intValueExact());
+    if (rootDegree == 1) {
+      return power;
+    }
 
-    double resultDenominator =
-        Math.pow(resultDenPart.doubleValue(), 1.0 / b.getDenominator().doubleValue());
+    Rational canonicalPower = power.canonical();
+    BigInteger rootNumerator = integerRoot(canonicalPower.getNumerator().abs(), rootDegree);
+    BigInteger rootDenominator = integerRoot(canonicalPower.getDenominator().abs(), rootDegree);
 
-    return new Rational(BigInteger.valueOf(Math.round(resultNumerator)),
-        BigInteger.valueOf(Math.round(resultDenominator)));
+    if (rootNumerator != null && rootDenominator != null) {
+      return new Rational(power.signum() < 0 ? rootNumerator.negate() : rootNumerator,
+          rootDenominator);
+    }
+
+    // Not a perfect power, the result is irrational
+    double magnitude = Math.pow(Math.abs(a.getValue()), Math.abs((double) numerator) / rootDegree);
+    double value = numerator < 0 ? 1.0 / magnitude : magnitude;
+
+    return new Rational(a.signum() < 0 && numerator % 2 != 0 ? -value : value);
   }
 
   public Rational abs(Rational a) {
+    if (a.fitsInLong()) {
+      return new Rational(Math.abs(a.getLongNumerator()), Math.abs(a.getLongDenominator()));
+    }
+
     return new Rational(a.getNumerator().abs(), a.getDenominator().abs());
   }
 
+  // Exponentiation by squaring, on longs while the parts fit
+  private Rational integerPower(Rational base, int exponent) {
+    if (base.fitsInLong()) {
+      try {
+        long resultNumerator = 1L;
+        long resultDenominator = 1L;
+        long baseNumerator = base.getLongNumerator();
+        long baseDenominator = base.getLongDenominator();
+
+        for (int e = exponent; e > 0; e >>= 1) {
+          if ((e & 1) != 0) {
+            resultNumerator = Math.multiplyExact(resultNumerator, baseNumerator);
+            resultDenominator = Math.multiplyExact(resultDenominator, baseDenominator);
+          }
+
+          if (e > 1) {
+            baseNumerator = Math.multiplyExact(baseNumerator, baseNumerator);
+            baseDenominator = Math.multiplyExact(baseDenominator, baseDenominator);
+          }
+        }
+
+        return createSmall(resultNumerator, resultDenominator);
+      } catch (ArithmeticException e) {
+        // Overflow, fall back to BigInteger arithmetic
+      }
+    }
+
+    // BigInteger.pow squares repeatedly as well
+    Rational canonicalBase = base.canonical();
+    BigInteger numerator = canonicalBase.getNumerator().pow(exponent);
+    BigInteger denominator = canonicalBase.getDenominator().pow(exponent);
+
+    return new Rational(numerator, denominator);
+  }
+
+  // Exact n-th root of a non-negative value, null if it is not a perfect n-th power
+  private BigInteger integerRoot(BigInteger value, int n) {
+    if (value.signum() == 0 || value.equals(BigInteger.ONE)) {
+      return value;
+    }
+
+    if (n >= value.bitLength()) {
+      // Every root above 1 would have an n-th power of more than bitLength bits
+      return null;
+    }
+
+    BigInteger degree = BigInteger.valueOf(n);
+
+    // Newton's iteration from above converges monotonically to the floor of the root
+    BigInteger root = BigInteger.ONE.shiftLeft((value.bitLength() + n - 1) / n);
+
+    while (true) {
+      BigInteger next = root.multiply(degree.subtract(BigInteger.ONE))
+          .add(value.divide(root.pow(n - 1)))
+          .divide(degree);
+
+      if (next.compareTo(root) >= 0) {
+        break;
+      }
+
+      root = next;
+    }
+
+    return root.pow(n).equals(value) ? root : null;
+  }
+
+  private Rational createSmall(long num, long den) {
+    if (den < 0) {
+      num = Math.negateExact(num);
+      den = Math.negateExact(den);
+    }
+
+    return new Rational(num, den);
+  }
+
   private BigInteger leastCommonDivisor(BigInteger a, BigInteger b) {
     return ((a.multiply(b)).abs()).divide(a.gcd(b));
   }
 
+  // Same value as the BigInteger variant, throws ArithmeticException on overflow
+  private long leastCommonDivisor(long a, long b) {
+    return Math.multiplyExact(Math.abs(a / greatestCommonDivisor(a, b)), Math.abs(b));
+  }
+
+  private long greatestCommonDivisor(long a, long b) {
+    a = Math.abs(a);
+    b = Math.abs(b);
+
+    while (b != 0L) {
+      long t = a % b;
+      a = b;
+      b = t;
+    }
+
+    return a;
+  }
+
 }
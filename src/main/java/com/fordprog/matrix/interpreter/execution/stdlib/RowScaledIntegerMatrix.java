@@ -0,0 +1,80 @@
+package com.fordprog.matrix.interpreter.execution.stdlib;
+
+import com.fordprog.matrix.interpreter.type.Rational;
+
+import java.math.BigInteger;
+
+/**
+ * Integer matrix obtained by multiplying every row of a rational matrix with the least common
+ * multiple of its denominators: {@code rows[i][j] = value[i][j] * scales[i]}.
+ */
+class RowScaledIntegerMatrix {
+
+  private final BigInteger[][] rows;
+
+  private final BigInteger[] scales;
+
+  private RowScaledIntegerMatrix(BigInteger[][] rows, BigInteger[] scales) {
+    this.rows = rows;
+    this.scales = scales;
+  }
+
+  static RowScaledIntegerMatrix fromRationals(Rational[][] value) {
+    BigInteger[][] rows = new BigInteger[value.length][];
+    BigInteger[] scales = new BigInteger[value.length];
+
+    for (int r = 0; r < value.length; ++r) {
+      BigInteger scale = BigInteger.ONE;
+
+      for (Rational element : value[r]) {
+        BigInteger denominator = element.getDenominator().abs();
+        scale = scale.divide(scale.gcd(denominator)).multiply(denominator);
+      }
+
+      rows[r] = new BigInteger[value[r].length];
+      for (int c = 0; c < value[r].length; ++c) {
+        rows[r][c] = value[r][c].getNumerator()
+            .multiply(scale.divide(value[r][c].getDenominator()));
+      }
+
+      scales[r] = scale;
+    }
+
+    return new RowScaledIntegerMatrix(rows, scales);
+  }
+
+  /**
+   * Returns the integer rows, which must not be modified.
+   */
+  BigInteger[][] getRows() {
+    return rows;
+  }
+
+  /**
+   * Returns a fresh copy of the integer rows, which callers may modify.
+   */
+  BigInteger[][] copyRows() {
+    BigInteger[][] copy = new BigInteger[rows.length][];
+
+    for (int r = 0; r < rows.length; ++r) {
+      copy[r] = rows[r].clone();
+    }
+
+    return copy;
+  }
+
+  BigInteger[] getScales() {
+    return scales;
+  }
+
+  BigInteger getScaleProduct() {
+    BigInteger product = BigInteger.ONE;
+
+    for (BigInteger scale : scales) {
+      product = product.multiply(scale);
+    }
+
+    return product;
+  }
+
+}
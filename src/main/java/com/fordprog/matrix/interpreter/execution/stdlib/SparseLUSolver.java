@@ -0,0 +1,466 @@
+package com.fordprog.matrix.interpreter.execution.stdlib;
+
+import com.fordprog.matrix.interpreter.error.runtime.InvalidOperationParameterRuntimeError;
+import com.fordprog.matrix.interpreter.type.Rational;
+import com.fordprog.matrix.interpreter.type.SparseMatrixStorage;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exact solver for square systems with a {@link SparseMatrixStorage} matrix. The unknowns and
+ * equations are first reordered with reverse Cuthill-McKee, which gathers the non-zeros around the
+ * diagonal, so elimination creates few new non-zeros (fill-in). Elimination then works on sparse
+ * rows, preferring the diagonal as pivot to keep the ordering, and applies every step to the
+ * right-hand side at once.
+ *
+ * <p>Every solve adds to the {@code sparse.*} counters of {@link ExecutionStatistics}: the
+ * non-zeros of the matrix and of its factors, the fill-in, and the bandwidth before and after
+ * the ordering.
+ */
+public class SparseLUSolver {
+
+  private static SparseLUSolver instance = new SparseLUSolver();
+
+  private final RationalOperation rationalOperation;
+
+  private final LongAdder solves;
+
+  private final LongAdder nonZeros;
+
+  private final LongAdder factorNonZeros;
+
+  private final LongAdder fillIn;
+
+  private final LongAdder originalBandwidth;
+
+  private final LongAdder orderedBandwidth;
+
+  private volatile boolean orderingEnabled;
+
+  private SparseLUSolver() {
+    rationalOperation = RationalOperation.getInstance();
+
+    ExecutionStatistics statistics = ExecutionStatistics.getInstance();
+    solves = statistics.counter("sparse.solves");
+    nonZeros = statistics.counter("sparse.nonzeros");
+    factorNonZeros = statistics.counter("sparse.factor_nonzeros");
+    fillIn = statistics.counter("sparse.fill_in");
+    originalBandwidth = statistics.counter("sparse.bandwidth.original");
+    orderedBandwidth = statistics.counter("sparse.bandwidth.ordered");
+
+    orderingEnabled = true;
+  }
+
+  public static SparseLUSolver getInstance() {
+    return instance;
+  }
+
+  public boolean isOrderingEnabled() {
+    return orderingEnabled;
+  }
+
+  /**
+   * Turns the fill-reducing ordering on or off, mainly to measure what it saves.
+   */
+  public void setOrderingEnabled(boolean orderingEnabled) {
+    this.orderingEnabled = orderingEnabled;
+  }
+
+  /**
+   * Solves {@code a * x = b} for a square {@code a}.
+   */
+  public Rational[] solve(SparseMatrixStorage a, Rational[] b) {
+    int n = a.getRowNum();
+    int[] order = orderingEnabled ? reverseCuthillMcKee(a) : identity(n);
+    int[] position = new int[n];
+
+    for (int i = 0; i < n; ++i) {
+      position[order[i]] = i;
+    }
+
+    // Row i and column j of the reordered system are row order[i] and column order[j] of a
+    int[][] rowColumns = new int[n][];
+    Rational[][] rowValues = new Rational[n][];
+    Rational[] right = new Rational[n];
+    int bandwidth = 0;
+
+    for (int i = 0; i < n; ++i) {
+      int from = a.getRowPointers()[order[i]];
+      int to = a.getRowPointers()[order[i] + 1];
+      long[] entries = new long[to - from];
+
+      // Position in the high half, index in a in the low half, so sorting sorts by position
+      for (int p = from; p < to; ++p) {
+        entries[p - from] = (long) position[a.getColumnIndices()[p]] << 32 | p;
+      }
+
+      Arrays.sort(entries);
+
+      rowColumns[i] = new int[entries.length];
+      rowValues[i] = new Rational[entries.length];
+
+      for (int e = 0; e < entries.length; ++e) {
+        rowColumns[i][e] = (int) (entries[e] >>> 32);
+        rowValues[i][e] = a.getValues()[(int) entries[e]];
+        bandwidth = Math.max(bandwidth, Math.abs(rowColumns[i][e] - i));
+      }
+
+      right[i] = b[order[i]];
+    }
+
+    Factorization factorization = eliminate(rowColumns, rowValues, right);
+
+    Rational[] solution = backSubstitute(factorization, right);
+    Rational[] x = new Rational[n];
+
+    for (int j = 0; j < n; ++j) {
+      x[order[j]] = solution[j];
+    }
+
+    solves.increment();
+    nonZeros.add(a.getNonZeroCount());
+    factorNonZeros.add(factorization.nonZeros);
+    fillIn.add(factorization.nonZeros - a.getNonZeroCount());
+    originalBandwidth.add(bandwidth(a));
+    orderedBandwidth.add(bandwidth);
+
+    return x;
+  }
+
+  // Right-looking elimination on sparse rows, also applied to the right-hand side
+  private Factorization eliminate(int[][] rowColumns, Rational[][] rowValues, Rational[] right) {
+    int n = rowColumns.length;
+
+    // Rows that have (or once had) a non-zero in a column, may contain stale entries
+    int[][] columnRows = new int[n][];
+    int[] columnRowNum = new int[n];
+
+    for (int i = 0; i < n; ++i) {
+      for (int column : rowColumns[i]) {
+        append(columnRows, columnRowNum, column, i);
+      }
+    }
+
+    int[] pivotRows = new int[n];
+    int[][] upperColumns = new int[n][];
+    Rational[][] upperValues = new Rational[n][];
+    boolean[] pivoted = new boolean[n];
+    int[] lastStep = new int[n];
+    Arrays.fill(lastStep, -1);
+    long factorNonZeros = 0L;
+
+    for (int k = 0; k < n; ++k) {
+      // All columns before k are eliminated, so the candidates' rows start at column k
+      int[] candidates = new int[columnRowNum[k]];
+      int candidateNum = 0;
+      int pivot = -1;
+
+      for (int e = 0; e < columnRowNum[k]; ++e) {
+        int i = columnRows[k][e];
+
+        if (pivoted[i] || lastStep[i] == k || rowColumns[i].length == 0
+            || rowColumns[i][0] != k) {
+          continue;
+        }
+
+        lastStep[i] = k;
+        candidates[candidateNum++] = i;
+
+        // The diagonal keeps the ordering, otherwise the shortest row creates the least fill-in
+        if (pivot != k && (i == k || pivot == -1
+            || rowColumns[i].length < rowColumns[pivot].length)) {
+          pivot = i;
+        }
+      }
+
+      if (pivot == -1) {
+        throw new InvalidOperationParameterRuntimeError("Matrix is singular or nearly singular");
+      }
+
+      // Pivot rows are final, they are the rows of U
+      pivotRows[k] = pivot;
+      upperColumns[k] = rowColumns[pivot];
+      upperValues[k] = rowValues[pivot];
+      pivoted[pivot] = true;
+      factorNonZeros += rowColumns[pivot].length;
+
+      for (int c = 0; c < candidateNum; ++c) {
+        if (candidates[c] != pivot) {
+          eliminateRow(rowColumns, rowValues, right, columnRows, columnRowNum, pivot,
+              candidates[c]);
+          ++factorNonZeros;
+        }
+      }
+
+      columnRows[k] = null;
+    }
+
+    return new Factorization(pivotRows, upperColumns, upperValues, factorNonZeros);
+  }
+
+  // Subtracts the multiple of the pivot row that cancels the first element of row i
+  private void eliminateRow(int[][] rowColumns, Rational[][] rowValues, Rational[] right,
+                            int[][] columnRows, int[] columnRowNum, int pivot, int i) {
+    int[] pivotColumns = rowColumns[pivot];
+    Rational[] pivotValues = rowValues[pivot];
+    int[] columns = rowColumns[i];
+    Rational[] values = rowValues[i];
+
+    Rational ratio = rationalOperation.divide(values[0], pivotValues[0]);
+
+    int[] resultColumns = new int[columns.length + pivotColumns.length - 2];
+    Rational[] resultValues = new Rational[resultColumns.length];
+    int size = 0;
+    int p = 1;
+    int q = 1;
+
+    while (p < columns.length || q < pivotColumns.length) {
+      int column = p < columns.length ? columns[p] : Integer.MAX_VALUE;
+      int pivotColumn = q < pivotColumns.length ? pivotColumns[q] : Integer.MAX_VALUE;
+      Rational value;
+
+      if (column < pivotColumn) {
+        value = values[p++];
+      } else if (pivotColumn < column) {
+        column = pivotColumn;
+        value = rationalOperation.subtract(new Rational(0L, 1L),
+            rationalOperation.multiply(ratio, pivotValues[q++]));
+
+        append(columnRows, columnRowNum, column, i);
+      } else {
+        value = rationalOperation.subtract(values[p++],
+            rationalOperation.multiply(ratio, pivotValues[q++]));
+      }
+
+      if (value.signum() != 0) {
+        resultColumns[size] = column;
+        resultValues[size] = value;
+        ++size;
+      }
+    }
+
+    rowColumns[i] = Arrays.copyOf(resultColumns, size);
+    rowValues[i] = Arrays.copyOf(resultValues, size);
+    right[i] = rationalOperation.subtract(right[i], rationalOperation.multiply(ratio, right[pivot]));
+  }
+
+  private Rational[] backSubstitute(Factorization factorization, Rational[] right) {
+    int n = right.length;
+    Rational[] x = new Rational[n];
+    RationalAccumulator sum = new RationalAccumulator();
+
+    for (int k = n - 1; k >= 0; --k) {
+      int[] columns = factorization.upperColumns[k];
+      Rational[] values = factorization.upperValues[k];
+
+      sum.reset().add(right[factorization.pivotRows[k]]);
+      for (int e = 1; e < columns.length; ++e) {
+        sum.subtractProduct(values[e], x[columns[e]]);
+      }
+
+      x[k] = rationalOperation.divide(sum.toRational(), values[0]);
+    }
+
+    return x;
+  }
+
+  /**
+   * Returns the unknowns in reverse Cuthill-McKee order: breadth-first search on the graph of
+   * {@code a + a^T} from a pseudo-peripheral node of every component, visiting neighbors by
+   * increasing degree, reversed at the end.
+   */
+  private static int[] reverseCuthillMcKee(SparseMatrixStorage a) {
+    int n = a.getRowNum();
+    int[][] neighbors = adjacency(a);
+
+    int[] order = new int[n];
+    boolean[] visited = new boolean[n];
+    int[] level = new int[n];
+    int ordered = 0;
+
+    while (ordered < n) {
+      int start = -1;
+
+      for (int v = 0; v < n; ++v) {
+        if (!visited[v] && (start == -1 || neighbors[v].length < neighbors[start].length)) {
+          start = v;
+        }
+      }
+
+      start = farthestNode(neighbors, start, level);
+
+      int head = ordered;
+      order[ordered++] = start;
+      visited[start] = true;
+
+      while (head < ordered) {
+        int v = order[head++];
+        int from = ordered;
+
+        for (int w : neighbors[v]) {
+          if (!visited[w]) {
+            visited[w] = true;
+            order[ordered++] = w;
+          }
+        }
+
+        sortByDegree(order, from, ordered, neighbors);
+      }
+    }
+
+    for (int i = 0; i < n / 2; ++i) {
+      int temp = order[i];
+      order[i] = order[n - 1 - i];
+      order[n - 1 - i] = temp;
+    }
+
+    return order;
+  }
+
+  // Lowest degree node of the last breadth-first level from start, a pseudo-peripheral node
+  private static int farthestNode(int[][] neighbors, int start, int[] level) {
+    int[] queue = new int[neighbors.length];
+    int head = 0;
+    int tail = 0;
+    int farthest = start;
+
+    Arrays.fill(level, -1);
+    level[start] = 0;
+    queue[tail++] = start;
+
+    while (head < tail) {
+      int v = queue[head++];
+
+      if (level[v] > level[farthest]
+          || level[v] == level[farthest] && neighbors[v].length < neighbors[farthest].length) {
+        farthest = v;
+      }
+
+      for (int w : neighbors[v]) {
+        if (level[w] == -1) {
+          level[w] = level[v] + 1;
+          queue[tail++] = w;
+        }
+      }
+    }
+
+    return farthest;
+  }
+
+  private static void sortByDegree(int[] nodes, int from, int to, int[][] neighbors) {
+    for (int i = from + 1; i < to; ++i) {
+      int node = nodes[i];
+      int j = i;
+
+      while (j > from && neighbors[nodes[j - 1]].length > neighbors[node].length) {
+        nodes[j] = nodes[j - 1];
+        --j;
+      }
+
+      nodes[j] = node;
+    }
+  }
+
+  // Sorted neighbor lists of the symmetric non-zero pattern, without the diagonal
+  private static int[][] adjacency(SparseMatrixStorage a) {
+    int n = a.getRowNum();
+    int[] rowPointers = a.getRowPointers();
+    int[] columnIndices = a.getColumnIndices();
+    int[] degree = new int[n];
+
+    for (int r = 0; r < n; ++r) {
+      for (int p = rowPointers[r]; p < rowPointers[r + 1]; ++p) {
+        if (columnIndices[p] != r) {
+          ++degree[r];
+          ++degree[columnIndices[p]];
+        }
+      }
+    }
+
+    int[][] neighbors = new int[n][];
+
+    for (int v = 0; v < n; ++v) {
+      neighbors[v] = new int[degree[v]];
+      degree[v] = 0;
+    }
+
+    for (int r = 0; r < n; ++r) {
+      for (int p = rowPointers[r]; p < rowPointers[r + 1]; ++p) {
+        int c = columnIndices[p];
+
+        if (c != r) {
+          neighbors[r][degree[r]++] = c;
+          neighbors[c][degree[c]++] = r;
+        }
+      }
+    }
+
+    for (int v = 0; v < n; ++v) {
+      Arrays.sort(neighbors[v]);
+
+      int size = 0;
+      for (int e = 0; e < neighbors[v].length; ++e) {
+        if (e == 0 || neighbors[v][e] != neighbors[v][e - 1]) {
+          neighbors[v][size++] = neighbors[v][e];
+        }
+      }
+
+      neighbors[v] = Arrays.copyOf(neighbors[v], size);
+    }
+
+    return neighbors;
+  }
+
+  private static int bandwidth(SparseMatrixStorage a) {
+    int bandwidth = 0;
+
+    for (int r = 0; r < a.getRowNum(); ++r) {
+      for (int p = a.getRowPointers()[r]; p < a.getRowPointers()[r + 1]; ++p) {
+        bandwidth = Math.max(bandwidth, Math.abs(a.getColumnIndices()[p] - r));
+      }
+    }
+
+    return bandwidth;
+  }
+
+  private static int[] identity(int n) {
+    int[] identity = new int[n];
+
+    for (int i = 0; i < n; ++i) {
+      identity[i] = i;
+    }
+
+    return identity;
+  }
+
+  private static void append(int[][] lists, int[] sizes, int list, int value) {
+    if (lists[list] == null) {
+      lists[list] = new int[4];
+    } else if (sizes[list] == lists[list].length) {
+      lists[list] = Arrays.copyOf(lists[list], 2 * sizes[list]);
+    }
+
+    lists[list][sizes[list]++] = value;
+  }
+
+  private static class Factorization {
+
+    private final int[] pivotRows;
+
+    private final int[][] upperColumns;
+
+    private final Rational[][] upperValues;
+
+    private final long nonZeros;
+
+    private Factorization(int[] pivotRows, int[][] upperColumns, Rational[][] upperValues,
+                          long nonZeros) {
+      this.pivotRows = pivotRows;
+      this.upperColumns = upperColumns;
+      this.upperValues = upperValues;
+      this.nonZeros = nonZeros;
+    }
+  }
+
+}
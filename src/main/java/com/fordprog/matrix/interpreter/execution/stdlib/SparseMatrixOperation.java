@@ -0,0 +1,231 @@
+package com.fordprog.matrix.interpreter.execution.stdlib;
+
+import com.fordprog.matrix.interpreter.type.Matrix;
+import com.fordprog.matrix.interpreter.type.Rational;
+import com.fordprog.matrix.interpreter.type.SparseMatrixStorage;
+
+import java.util.Arrays;
+
+/**
+ * Kernels of {@link MatrixOperation} for {@link SparseMatrixStorage} operands, which only ever
+ * touch the non-zero elements. Results are stored sparse as long as they are sparse enough, dense
+ * otherwise. Argument checks are left to {@link MatrixOperation}.
+ */
+class SparseMatrixOperation {
+
+  private static SparseMatrixOperation instance = new SparseMatrixOperation();
+
+  // Rows of the product computed by one task of the parallel pool
+  private static final int ROW_BLOCK = 64;
+
+  private final RationalOperation rationalOperation;
+
+  private final ParallelExecution parallelExecution;
+
+  private SparseMatrixOperation() {
+    rationalOperation = RationalOperation.getInstance();
+    parallelExecution = ParallelExecution.getInstance();
+  }
+
+  static SparseMatrixOperation getInstance() {
+    return instance;
+  }
+
+  /**
+   * Returns {@code a + b}, or {@code a - b} if {@code subtract} is set, merging the rows.
+   */
+  Matrix add(SparseMatrixStorage a, SparseMatrixStorage b, boolean subtract) {
+    int rowNum = a.getRowNum();
+    int[] aPointers = a.getRowPointers();
+    int[] aColumns = a.getColumnIndices();
+    Rational[] aValues = a.getValues();
+    int[] bPointers = b.getRowPointers();
+    int[] bColumns = b.getColumnIndices();
+    Rational[] bValues = b.getValues();
+
+    int[] rowPointers = new int[rowNum + 1];
+    int[] columnIndices = new int[aValues.length + bValues.length];
+    Rational[] values = new Rational[aValues.length + bValues.length];
+    int index = 0;
+
+    for (int r = 0; r < rowNum; ++r) {
+      int p = aPointers[r];
+      int q = bPointers[r];
+
+      while (p < aPointers[r + 1] || q < bPointers[r + 1]) {
+        int aColumn = p < aPointers[r + 1] ? aColumns[p] : Integer.MAX_VALUE;
+        int bColumn = q < bPointers[r + 1] ? bColumns[q] : Integer.MAX_VALUE;
+        Rational value;
+
+        if (aColumn < bColumn) {
+          value = aValues[p++];
+        } else if (bColumn < aColumn) {
+          value = subtract ? rationalOperation.subtract(new Rational(0L, 1L), bValues[q++])
+              : bValues[q++];
+        } else {
+          value = subtract ? rationalOperation.subtract(aValues[p++], bValues[q++])
+              : rationalOperation.add(aValues[p++], bValues[q++]);
+        }
+
+        if (value.signum() != 0) {
+          columnIndices[index] = Math.min(aColumn, bColumn);
+          values[index] = value;
+          ++index;
+        }
+      }
+
+      rowPointers[r + 1] = index;
+    }
+
+    return matrix(new SparseMatrixStorage(rowNum, a.getColumnNum(), rowPointers,
+        Arrays.copyOf(columnIndices, index), Arrays.copyOf(values, index)));
+  }
+
+  /**
+   * Row-by-row (Gustavson) product: row {@code r} of the result is the sum of the rows of
+   * {@code b} selected by the non-zeros of row {@code r} of {@code a}, scaled by them.
+   */
+  Matrix multiply(SparseMatrixStorage a, SparseMatrixStorage b) {
+    int rowNum = a.getRowNum();
+    int columnNum = b.getColumnNum();
+    int[] aPointers = a.getRowPointers();
+    int[] aColumns = a.getColumnIndices();
+    Rational[] aValues = a.getValues();
+    int[] bPointers = b.getRowPointers();
+    int[] bColumns = b.getColumnIndices();
+    Rational[] bValues = b.getValues();
+
+    int[][] rowColumns = new int[rowNum][];
+    Rational[][] rowValues = new Rational[rowNum][];
+    int blocks = (rowNum + ROW_BLOCK - 1) / ROW_BLOCK;
+
+    parallelExecution.forEach(0, blocks, rowNum, block -> {
+      RationalAccumulator[] sums = new RationalAccumulator[columnNum];
+      int[] lastRow = new int[columnNum];
+      int[] touched = new int[columnNum];
+      Arrays.fill(lastRow, -1);
+
+      for (int r = block * ROW_BLOCK; r < Math.min((block + 1) * ROW_BLOCK, rowNum); ++r) {
+        int touchedNum = 0;
+
+        for (int p = aPointers[r]; p < aPointers[r + 1]; ++p) {
+          int k = aColumns[p];
+
+          for (int q = bPointers[k]; q < bPointers[k + 1]; ++q) {
+            int c = bColumns[q];
+
+            if (lastRow[c] != r) {
+              lastRow[c] = r;
+              touched[touchedNum++] = c;
+
+              if (sums[c] == null) {
+                sums[c] = new RationalAccumulator();
+              } else {
+                sums[c].reset();
+              }
+            }
+
+            sums[c].addProduct(aValues[p], bValues[q]);
+          }
+        }
+
+        Arrays.sort(touched, 0, touchedNum);
+
+        int[] columns = new int[touchedNum];
+        Rational[] values = new Rational[touchedNum];
+        int nonZeros = 0;
+
+        for (int i = 0; i < touchedNum; ++i) {
+          Rational value = sums[touched[i]].toRational();
+
+          if (value.signum() != 0) {
+            columns[nonZeros] = touched[i];
+            values[nonZeros] = value;
+            ++nonZeros;
+          }
+        }
+
+        rowColumns[r] = Arrays.copyOf(columns, nonZeros);
+        rowValues[r] = Arrays.copyOf(values, nonZeros);
+      }
+    });
+
+    int[] rowPointers = new int[rowNum + 1];
+
+    for (int r = 0; r < rowNum; ++r) {
+      rowPointers[r + 1] = rowPointers[r] + rowColumns[r].length;
+    }
+
+    int[] columnIndices = new int[rowPointers[rowNum]];
+    Rational[] values = new Rational[rowPointers[rowNum]];
+
+    for (int r = 0; r < rowNum; ++r) {
+      System.arraycopy(rowColumns[r], 0, columnIndices, rowPointers[r], rowColumns[r].length);
+      System.arraycopy(rowValues[r], 0, values, rowPointers[r], rowValues[r].length);
+    }
+
+    return matrix(new SparseMatrixStorage(rowNum, columnNum, rowPointers, columnIndices, values));
+  }
+
+  Matrix transpose(SparseMatrixStorage a) {
+    int rowNum = a.getRowNum();
+    int columnNum = a.getColumnNum();
+    int[] aPointers = a.getRowPointers();
+    int[] aColumns = a.getColumnIndices();
+    Rational[] aValues = a.getValues();
+
+    // Counting sort by column, scanning the rows in order keeps every result row sorted
+    int[] rowPointers = new int[columnNum + 1];
+
+    for (int column : aColumns) {
+      ++rowPointers[column + 1];
+    }
+
+    for (int c = 0; c < columnNum; ++c) {
+      rowPointers[c + 1] += rowPointers[c];
+    }
+
+    int[] next = Arrays.copyOf(rowPointers, columnNum);
+    int[] columnIndices = new int[aValues.length];
+    Rational[] values = new Rational[aValues.length];
+
+    for (int r = 0; r < rowNum; ++r) {
+      for (int p = aPointers[r]; p < aPointers[r + 1]; ++p) {
+        int index = next[aColumns[p]]++;
+
+        columnIndices[index] = r;
+        values[index] = aValues[p];
+      }
+    }
+
+    return new Matrix(
+        new SparseMatrixStorage(columnNum, rowNum, rowPointers, columnIndices, values));
+  }
+
+  Matrix scalarMultiply(SparseMatrixStorage a, Rational s) {
+    if (s.signum() == 0) {
+      return new Matrix(SparseMatrixStorage.empty(a.getRowNum(), a.getColumnNum()));
+    }
+
+    Rational[] aValues = a.getValues();
+    Rational[] values = new Rational[aValues.length];
+
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = rationalOperation.multiply(aValues[i], s);
+    }
+
+    return new Matrix(new SparseMatrixStorage(a.getRowNum(), a.getColumnNum(),
+        a.getRowPointers(), a.getColumnIndices(), values));
+  }
+
+  // Switches to dense storage when the result has filled up
+  private static Matrix matrix(SparseMatrixStorage storage) {
+    if (SparseMatrixStorage.isSparse(storage.getNonZeroCount(), storage.getRowNum(),
+        storage.getColumnNum())) {
+      return new Matrix(storage);
+    }
+
+    return new Matrix(new Matrix(storage).getValue());
+  }
+
+}
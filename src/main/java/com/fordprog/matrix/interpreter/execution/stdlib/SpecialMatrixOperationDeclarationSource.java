@@ -3,6 +3,7 @@ package com.fordprog.matrix.interpreter.execution.stdlib;
 import com.fordprog.matrix.interpreter.semantic.Symbol;
 import com.fordprog.matrix.interpreter.type.BuiltinFunction;
 import com.fordprog.matrix.interpreter.type.Matrix;
+import com.fordprog.matrix.interpreter.type.Rational;
 import com.fordprog.matrix.interpreter.type.Type;
 
 import java.util.ArrayList;
@@ -35,6 +36,12 @@ public class SpecialMatrixOperationDeclarationSource extends BuiltinDeclarationS
             this::determinantOfMatrix
         );
 
+    BuiltinFunction rankBuiltinFunction =
+        new BuiltinFunction(Type.RATIONAL,
+            Collections.singletonList(createBuiltinParameterSymbol("m", Type.MATRIX)),
+            this::rankOfMatrix
+        );
+
     BuiltinFunction transposeBuiltinFunction =
         new BuiltinFunction(Type.MATRIX,
             Collections.singletonList(createBuiltinParameterSymbol("m", Type.MATRIX)),
@@ -54,6 +61,33 @@ public class SpecialMatrixOperationDeclarationSource extends BuiltinDeclarationS
                 createBuiltinParameterSymbol("v", Type.MATRIX)),
             this::solveLinearSystem);
 
+    BuiltinFunction solveBatchBuiltinFunction =
+        new BuiltinFunction(Type.MATRIX,
+            Arrays.asList(createBuiltinParameterSymbol("m", Type.MATRIX),
+                createBuiltinParameterSymbol("b", Type.MATRIX)),
+            this::solveLinearSystems);
+
+    BuiltinFunction solveSymmetricBuiltinFunction =
+        new BuiltinFunction(Type.MATRIX,
+            Arrays.asList(createBuiltinParameterSymbol("m", Type.MATRIX),
+                createBuiltinParameterSymbol("v", Type.MATRIX)),
+            this::solveSymmetric);
+
+    BuiltinFunction solveCgBuiltinFunction =
+        new BuiltinFunction(Type.MATRIX, iterativeSolverParameters(), this::solveCg);
+
+    BuiltinFunction solveJacobiBuiltinFunction =
+        new BuiltinFunction(Type.MATRIX, iterativeSolverParameters(), this::solveJacobi);
+
+    BuiltinFunction solveGaussSeidelBuiltinFunction =
+        new BuiltinFunction(Type.MATRIX, iterativeSolverParameters(), this::solveGaussSeidel);
+
+    BuiltinFunction mpowBuiltinFunction =
+        new BuiltinFunction(Type.MATRIX,
+            Arrays.asList(createBuiltinParameterSymbol("m", Type.MATRIX),
+                createBuiltinParameterSymbol("k", Type.RATIONAL)),
+            this::powerOfMatrix);
+
     BuiltinFunction eigenValueBuiltinFunction =
         new BuiltinFunction(Type.MATRIX,
             Collections.singletonList(createBuiltinParameterSymbol("m", Type.MATRIX)),
@@ -64,20 +98,80 @@ public class SpecialMatrixOperationDeclarationSource extends BuiltinDeclarationS
             Collections.singletonList(createBuiltinParameterSymbol("m", Type.MATRIX)),
             this::eigenVector);
 
+    BuiltinFunction luBuiltinFunction =
+        new BuiltinFunction(Type.MATRIX,
+            Collections.singletonList(createBuiltinParameterSymbol("m", Type.MATRIX)),
+            this::luDecomposition);
+
+    BuiltinFunction luSolveBuiltinFunction =
+        new BuiltinFunction(Type.MATRIX,
+            Arrays.asList(createBuiltinParameterSymbol("f", Type.MATRIX),
+                createBuiltinParameterSymbol("v", Type.MATRIX)),
+            this::luSolve);
+
+    BuiltinFunction luDeterminantBuiltinFunction =
+        new BuiltinFunction(Type.RATIONAL,
+            Collections.singletonList(createBuiltinParameterSymbol("f", Type.MATRIX)),
+            this::luDeterminant);
+
+    BuiltinFunction luInverseBuiltinFunction =
+        new BuiltinFunction(Type.MATRIX,
+            Collections.singletonList(createBuiltinParameterSymbol("f", Type.MATRIX)),
+            this::luInverse);
+
+    BuiltinFunction ldlBuiltinFunction =
+        new BuiltinFunction(Type.MATRIX,
+            Collections.singletonList(createBuiltinParameterSymbol("m", Type.MATRIX)),
+            this::ldlDecomposition);
+
+    BuiltinFunction choleskyBuiltinFunction =
+        new BuiltinFunction(Type.MATRIX,
+            Collections.singletonList(createBuiltinParameterSymbol("m", Type.MATRIX)),
+            this::choleskyDecomposition);
+
     declaredSymbols.add(createBuiltinFunctionSymbol("inverse", inverseBuiltinFunction));
 
     declaredSymbols.add(createBuiltinFunctionSymbol("determinant", determinantBuiltinFunction));
 
+    declaredSymbols.add(createBuiltinFunctionSymbol("rank", rankBuiltinFunction));
+
     declaredSymbols.add(createBuiltinFunctionSymbol("transpose", transposeBuiltinFunction));
 
     declaredSymbols.add(createBuiltinFunctionSymbol("gauss", gaussBuiltinFunction));
 
     declaredSymbols.add(createBuiltinFunctionSymbol("solve", solveBuiltinFunction));
 
+    declaredSymbols.add(createBuiltinFunctionSymbol("solve_batch", solveBatchBuiltinFunction));
+
+    declaredSymbols.add(
+        createBuiltinFunctionSymbol("solve_symmetric", solveSymmetricBuiltinFunction));
+
+    declaredSymbols.add(createBuiltinFunctionSymbol("solve_cg", solveCgBuiltinFunction));
+
+    declaredSymbols.add(createBuiltinFunctionSymbol("solve_jacobi", solveJacobiBuiltinFunction));
+
+    declaredSymbols.add(
+        createBuiltinFunctionSymbol("solve_gauss_seidel", solveGaussSeidelBuiltinFunction));
+
+    declaredSymbols.add(createBuiltinFunctionSymbol("mpow", mpowBuiltinFunction));
+
     declaredSymbols.add(createBuiltinFunctionSymbol("eigen_value", eigenValueBuiltinFunction));
 
     declaredSymbols.add(createBuiltinFunctionSymbol("eigen_vector", eigenVectorBuiltinFunction));
 
+    declaredSymbols.add(createBuiltinFunctionSymbol("lu", luBuiltinFunction));
+
+    declaredSymbols.add(createBuiltinFunctionSymbol("lu_solve", luSolveBuiltinFunction));
+
+    declaredSymbols.add(
+        createBuiltinFunctionSymbol("lu_determinant", luDeterminantBuiltinFunction));
+
+    declaredSymbols.add(createBuiltinFunctionSymbol("lu_inverse", luInverseBuiltinFunction));
+
+    declaredSymbols.add(createBuiltinFunctionSymbol("ldl", ldlBuiltinFunction));
+
+    declaredSymbols.add(createBuiltinFunctionSymbol("cholesky", choleskyBuiltinFunction));
+
     return declaredSymbols;
   }
 
@@ -89,6 +183,10 @@ public class SpecialMatrixOperationDeclarationSource extends BuiltinDeclarationS
     return matrixOperation.determinant((Matrix) parameters.get(0));
   }
 
+  private Object rankOfMatrix(List<Object> parameters) {
+    return matrixOperation.rank((Matrix) parameters.get(0));
+  }
+
   private Object transposeMatrix(List<Object> parameters) {
     return matrixOperation.transpose((Matrix) parameters.get(0));
   }
@@ -102,6 +200,46 @@ public class SpecialMatrixOperationDeclarationSource extends BuiltinDeclarationS
         .solveLinearSystem((Matrix) parameters.get(0), (Matrix) parameters.get(1));
   }
 
+  private Object solveLinearSystems(List<Object> parameters) {
+    return matrixOperation
+        .solveLinearSystems((Matrix) parameters.get(0), (Matrix) parameters.get(1));
+  }
+
+  private Object solveSymmetric(List<Object> parameters) {
+    return matrixOperation
+        .solveSymmetric((Matrix) parameters.get(0), (Matrix) parameters.get(1));
+  }
+
+  private Object solveCg(List<Object> parameters) {
+    return solveIteratively(parameters, IterativeSolver.Method.CONJUGATE_GRADIENT);
+  }
+
+  private Object solveJacobi(List<Object> parameters) {
+    return solveIteratively(parameters, IterativeSolver.Method.JACOBI);
+  }
+
+  private Object solveGaussSeidel(List<Object> parameters) {
+    return solveIteratively(parameters, IterativeSolver.Method.GAUSS_SEIDEL);
+  }
+
+  private Object solveIteratively(List<Object> parameters, IterativeSolver.Method method) {
+    return matrixOperation.solveIteratively((Matrix) parameters.get(0),
+        (Matrix) parameters.get(1), method, (Rational) parameters.get(2),
+        (Rational) parameters.get(3));
+  }
+
+  // m, v, tolerance and maximum iteration count
+  private List<Symbol> iterativeSolverParameters() {
+    return Arrays.asList(createBuiltinParameterSymbol("m", Type.MATRIX),
+        createBuiltinParameterSymbol("v", Type.MATRIX),
+        createBuiltinParameterSymbol("tol", Type.RATIONAL),
+        createBuiltinParameterSymbol("max_iter", Type.RATIONAL));
+  }
+
+  private Object powerOfMatrix(List<Object> parameters) {
+    return matrixOperation.power((Matrix) parameters.get(0), (Rational) parameters.get(1));
+  }
+
   private Object eigenValue(List<Object> parameters) {
     return matrixOperation.eigenValues((Matrix) parameters.get(0));
   }
@@ -110,4 +248,29 @@ public class SpecialMatrixOperationDeclarationSource extends BuiltinDeclarationS
     return matrixOperation.eigenVectors((Matrix) parameters.get(0));
   }
 
+  private Object luDecomposition(List<Object> parameters) {
+    return matrixOperation.decompose((Matrix) parameters.get(0));
+  }
+
+  private Object luSolve(List<Object> parameters) {
+    return matrixOperation.solveWithDecomposition(
+        LUDecomposition.fromMatrix((Matrix) parameters.get(0)), (Matrix) parameters.get(1));
+  }
+
+  private Object luDeterminant(List<Object> parameters) {
+    return LUDecomposition.fromMatrix((Matrix) parameters.get(0)).determinant();
+  }
+
+  private Object luInverse(List<Object> parameters) {
+    return LUDecomposition.fromMatrix((Matrix) parameters.get(0)).inverse();
+  }
+
+  private Object ldlDecomposition(List<Object> parameters) {
+    return matrixOperation.decomposeSymmetric((Matrix) parameters.get(0));
+  }
+
+  private Object choleskyDecomposition(List<Object> parameters) {
+    return matrixOperation.cholesky((Matrix) parameters.get(0));
+  }
+
 }
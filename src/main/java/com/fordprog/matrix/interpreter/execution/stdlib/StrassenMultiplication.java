@@ -0,0 +1,194 @@
+package com.fordprog.matrix.interpreter.execution.stdlib;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Product of square integer matrices with the Strassen-Winograd recursion: 7 half-size products
+ * and 15 additions instead of 8 products. Pays off when multiplying the elements costs much more
+ * than adding them, i.e. for long integers. Below the cutoff the classic product is used. Odd
+ * sizes are padded with zeros at every level of the recursion.
+ *
+ * <p>Matrices are row-major {@code n * n} arrays.
+ */
+public class StrassenMultiplication {
+
+  private static StrassenMultiplication instance = new StrassenMultiplication();
+
+  private final ParallelExecution parallelExecution;
+
+  private volatile int cutoff;
+
+  private volatile int minBitLength;
+
+  private StrassenMultiplication() {
+    parallelExecution = ParallelExecution.getInstance();
+    cutoff = 32;
+    minBitLength = 1024;
+  }
+
+  public static StrassenMultiplication getInstance() {
+    return instance;
+  }
+
+  public int getCutoff() {
+    return cutoff;
+  }
+
+  /**
+   * Sets the matrix size up to which the classic product is used, both as the entry condition
+   * and as the base case of the recursion.
+   */
+  public void setCutoff(int cutoff) {
+    if (cutoff < 1) {
+      throw new IllegalArgumentException("Cutoff must be positive: " + cutoff);
+    }
+
+    this.cutoff = cutoff;
+  }
+
+  public int getMinBitLength() {
+    return minBitLength;
+  }
+
+  /**
+   * Sets the bit-length of the largest element from which the recursion is worth its extra
+   * additions.
+   */
+  public void setMinBitLength(int minBitLength) {
+    this.minBitLength = minBitLength;
+  }
+
+  public boolean isPreferred(int size, int bitLength) {
+    return size > cutoff && bitLength >= minBitLength;
+  }
+
+  /**
+   * Returns the bit-length of the largest element of {@code a}.
+   */
+  public static int maxBitLength(BigInteger[] a) {
+    int bitLength = 0;
+
+    for (BigInteger element : a) {
+      bitLength = Math.max(bitLength, element.bitLength());
+    }
+
+    return bitLength;
+  }
+
+  public BigInteger[] multiply(BigInteger[] a, BigInteger[] b, int n) {
+    if (n <= cutoff) {
+      return multiplyClassic(a, b, n);
+    }
+
+    int h = (n + 1) / 2;
+
+    BigInteger[] a11 = block(a, n, 0, 0, h);
+    BigInteger[] a12 = block(a, n, 0, h, h);
+    BigInteger[] a21 = block(a, n, h, 0, h);
+    BigInteger[] a22 = block(a, n, h, h, h);
+
+    BigInteger[] b11 = block(b, n, 0, 0, h);
+    BigInteger[] b12 = block(b, n, 0, h, h);
+    BigInteger[] b21 = block(b, n, h, 0, h);
+    BigInteger[] b22 = block(b, n, h, h, h);
+
+    BigInteger[] s1 = add(a21, a22);
+    BigInteger[] s2 = subtract(s1, a11);
+    BigInteger[] s3 = subtract(a11, a21);
+    BigInteger[] s4 = subtract(a12, s2);
+
+    BigInteger[] t1 = subtract(b12, b11);
+    BigInteger[] t2 = subtract(b22, t1);
+    BigInteger[] t3 = subtract(b22, b12);
+    BigInteger[] t4 = subtract(t2, b21);
+
+    BigInteger[][] left = {a11, a12, s4, a22, s1, s2, s3};
+    BigInteger[][] right = {b11, b21, b22, t4, t1, t2, t3};
+    BigInteger[][] p = new BigInteger[7][];
+
+    parallelExecution.forEach(0, 7, n, i -> p[i] = multiply(left[i], right[i], h));
+
+    BigInteger[] u2 = add(p[0], p[5]);
+    BigInteger[] u3 = add(u2, p[6]);
+    BigInteger[] u4 = add(u2, p[4]);
+
+    BigInteger[] c = new BigInteger[n * n];
+
+    setBlock(c, n, 0, 0, h, add(p[0], p[1]));
+    setBlock(c, n, 0, h, h, add(u4, p[2]));
+    setBlock(c, n, h, 0, h, subtract(u3, p[3]));
+    setBlock(c, n, h, h, h, add(u3, p[4]));
+
+    return c;
+  }
+
+  private static BigInteger[] multiplyClassic(BigInteger[] a, BigInteger[] b, int n) {
+    BigInteger[] c = new BigInteger[n * n];
+    Arrays.fill(c, BigInteger.ZERO);
+
+    // i-k-j order, the inner loop scans rows of b and of the result
+    for (int r = 0; r < n; ++r) {
+      for (int i = 0; i < n; ++i) {
+        BigInteger factor = a[r * n + i];
+
+        if (factor.signum() == 0) {
+          continue;
+        }
+
+        for (int j = 0; j < n; ++j) {
+          if (b[i * n + j].signum() != 0) {
+            c[r * n + j] = c[r * n + j].add(factor.multiply(b[i * n + j]));
+          }
+        }
+      }
+    }
+
+    return c;
+  }
+
+  // The h x h block at (row, column), zero outside of the n x n matrix
+  private static BigInteger[] block(BigInteger[] m, int n, int row, int column, int h) {
+    BigInteger[] block = new BigInteger[h * h];
+
+    for (int r = 0; r < h; ++r) {
+      for (int c = 0; c < h; ++c) {
+        block[r * h + c] = row + r < n && column + c < n
+            ? m[(row + r) * n + column + c] : BigInteger.ZERO;
+      }
+    }
+
+    return block;
+  }
+
+  // Copies the part of the h x h block that lies inside of the n x n matrix
+  private static void setBlock(BigInteger[] m, int n, int row, int column, int h,
+                               BigInteger[] block) {
+    for (int r = 0; r < h && row + r < n; ++r) {
+      for (int c = 0; c < h && column + c < n; ++c) {
+        m[(row + r) * n + column + c] = block[r * h + c];
+      }
+    }
+  }
+
+  private static BigInteger[] add(BigInteger[] a, BigInteger[] b) {
+    BigInteger[] sum = new BigInteger[a.length];
+
+    for (int i = 0; i < a.length; ++i) {
+      sum[i] = a[i].add(b[i]);
+    }
+
+    return sum;
+  }
+
+  private static BigInteger[] subtract(BigInteger[] a, BigInteger[] b) {
+    BigInteger[] difference = new BigInteger[a.length];
+
+    for (int i = 0; i < a.length; ++i) {
+      difference[i] = a[i].subtract(b[i]);
+    }
+
+    return difference;
+  }
+
+}
@@ -0,0 +1,171 @@
+package com.fordprog.matrix.interpreter.execution.stdlib;
+
+import com.fordprog.matrix.interpreter.error.runtime.InvalidOperationParameterRuntimeError;
+import com.fordprog.matrix.interpreter.type.Matrix;
+import com.fordprog.matrix.interpreter.type.MatrixStructure;
+import com.fordprog.matrix.interpreter.type.Rational;
+import com.fordprog.matrix.interpreter.type.SparseMatrixStorage;
+
+import java.util.Arrays;
+
+/**
+ * Kernels of {@link MatrixOperation} for square matrices with a special {@link MatrixStructure}:
+ * diagonal, triangular and tridiagonal. Argument checks are left to {@link MatrixOperation}.
+ */
+class StructuredMatrixOperation {
+
+  private static StructuredMatrixOperation instance = new StructuredMatrixOperation();
+
+  private final RationalOperation rationalOperation;
+
+  private final LogicOperation logicOperation;
+
+  private StructuredMatrixOperation() {
+    rationalOperation = RationalOperation.getInstance();
+    logicOperation = LogicOperation.getInstance();
+  }
+
+  static StructuredMatrixOperation getInstance() {
+    return instance;
+  }
+
+  /**
+   * Product of the diagonal, the determinant of a triangular matrix.
+   */
+  Rational triangularDeterminant(Matrix m) {
+    Rational determinant = new Rational(1L, 1L);
+
+    for (int i = 0; i < m.getRowNum() && determinant.signum() != 0; ++i) {
+      determinant = rationalOperation.multiply(determinant, m.getValueAtPosition(i, i));
+    }
+
+    return determinant;
+  }
+
+  Matrix diagonalInverse(Matrix m) {
+    int n = m.getRowNum();
+    int[] rowPointers = new int[n + 1];
+    int[] columnIndices = new int[n];
+    Rational[] values = new Rational[n];
+
+    for (int i = 0; i < n; ++i) {
+      Rational element = m.getValueAtPosition(i, i);
+
+      if (element.signum() == 0) {
+        throw new InvalidOperationParameterRuntimeError("Matrix is singular");
+      }
+
+      rowPointers[i + 1] = i + 1;
+      columnIndices[i] = i;
+      values[i] = rationalOperation.divide(new Rational(1L, 1L), element);
+    }
+
+    SparseMatrixStorage inverse = new SparseMatrixStorage(n, n, rowPointers, columnIndices,
+        values);
+
+    if (SparseMatrixStorage.isSparse(n, n, n)) {
+      return new Matrix(inverse);
+    }
+
+    return new Matrix(new Matrix(inverse).getValue());
+  }
+
+  /**
+   * Solves {@code m * x = b} if m is triangular (diagonal included) or tridiagonal. Returns null
+   * when the structure has no fast path or a pivot is at most {@code minPivot} in magnitude, so
+   * the general elimination decides whether the matrix is nearly singular. Throws if a diagonal
+   * element of a triangular matrix is zero.
+   */
+  Rational[] solve(Matrix m, Rational[] b, Rational minPivot) {
+    MatrixStructure structure = m.getStructure();
+
+    if (structure.isUpperTriangular()) {
+      return substitute(SparseMatrixStorage.fromStorage(m.getStorage()), b, true, minPivot);
+    }
+
+    if (structure.isLowerTriangular()) {
+      return substitute(SparseMatrixStorage.fromStorage(m.getStorage()), b, false, minPivot);
+    }
+
+    if (structure.isTridiagonal()) {
+      return solveTridiagonal(m, b, minPivot);
+    }
+
+    return null;
+  }
+
+  // Back substitution for upper, forward substitution for lower triangular matrices
+  private Rational[] substitute(SparseMatrixStorage m, Rational[] b, boolean upper,
+                                Rational minPivot) {
+    int n = b.length;
+    int[] rowPointers = m.getRowPointers();
+    int[] columnIndices = m.getColumnIndices();
+    Rational[] values = m.getValues();
+
+    Rational[] x = new Rational[n];
+    RationalAccumulator sum = new RationalAccumulator();
+
+    for (int k = 0; k < n; ++k) {
+      int i = upper ? n - 1 - k : k;
+      Rational diagonal = null;
+
+      sum.reset().add(b[i]);
+      for (int p = rowPointers[i]; p < rowPointers[i + 1]; ++p) {
+        if (columnIndices[p] == i) {
+          diagonal = values[p];
+        } else {
+          sum.subtractProduct(values[p], x[columnIndices[p]]);
+        }
+      }
+
+      if (diagonal == null) {
+        throw new InvalidOperationParameterRuntimeError("Matrix is singular or nearly singular");
+      }
+
+      if (logicOperation.compareMagnitude(diagonal, minPivot) <= 0) {
+        return null;
+      }
+
+      x[i] = rationalOperation.divide(sum.toRational(), diagonal);
+    }
+
+    return x;
+  }
+
+  // Thomas algorithm: elimination without pivoting on the three diagonals
+  private Rational[] solveTridiagonal(Matrix m, Rational[] b, Rational minPivot) {
+    int n = b.length;
+    Rational[] upper = new Rational[n];
+    Rational[] right = new Rational[n];
+
+    for (int i = 0; i < n; ++i) {
+      Rational pivot = m.getValueAtPosition(i, i);
+      right[i] = b[i];
+
+      if (i > 0) {
+        Rational lower = m.getValueAtPosition(i, i - 1);
+
+        pivot = rationalOperation.subtract(pivot, rationalOperation.multiply(lower, upper[i - 1]));
+        right[i] = rationalOperation.subtract(right[i],
+            rationalOperation.multiply(lower, right[i - 1]));
+      }
+
+      if (logicOperation.compareMagnitude(pivot, minPivot) <= 0) {
+        return null;
+      }
+
+      upper[i] = i + 1 < n
+          ? rationalOperation.divide(m.getValueAtPosition(i, i + 1), pivot) : null;
+      right[i] = rationalOperation.divide(right[i], pivot);
+    }
+
+    Rational[] x = Arrays.copyOf(right, n);
+
+    for (int i = n - 2; i >= 0; --i) {
+      x[i] = rationalOperation.subtract(x[i], rationalOperation.multiply(upper[i], x[i + 1]));
+    }
+
+    return x;
+  }
+
+}
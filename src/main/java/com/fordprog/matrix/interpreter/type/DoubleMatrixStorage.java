@@ -0,0 +1,47 @@
+package com.fordprog.matrix.interpreter.type;
+
+/**
+ * Approximate storage for the double-precision numeric mode: one flat, row-major
+ * {@code double[]}. Elements are converted to rationals only when read through
+ * {@link #get(int, int)}, e.g. for printing.
+ */
+public class DoubleMatrixStorage implements MatrixStorage {
+
+  private final int rowNum;
+
+  private final int columnNum;
+
+  private final double[] values;
+
+  /**
+   * Takes ownership of the array.
+   */
+  public DoubleMatrixStorage(int rowNum, int columnNum, double[] values) {
+    this.rowNum = rowNum;
+    this.columnNum = columnNum;
+    this.values = values;
+  }
+
+  @Override
+  public int getRowNum() {
+    return rowNum;
+  }
+
+  @Override
+  public int getColumnNum() {
+    return columnNum;
+  }
+
+  @Override
+  public Rational get(int row, int column) {
+    return new Rational(values[row * columnNum + column]);
+  }
+
+  /**
+   * Returns the backing array, which must not be modified.
+   */
+  public double[] getValues() {
+    return values;
+  }
+
+}
@@ -0,0 +1,122 @@
+package com.fordprog.matrix.interpreter.type;
+
+import java.math.BigInteger;
+
+/**
+ * Stores an integer matrix and one denominator shared by all elements, element {@code (r, c)}
+ * being {@code numerators[r * columnNum + c] / denominator}. Typical for inverses (adjugate over
+ * determinant) and for matrices of large integers.
+ */
+public class IntegerMatrixStorage implements MatrixStorage {
+
+  // Above this many extra bits the common denominator costs more than per-element rationals
+  private static final int COMMON_DENOMINATOR_SLACK = 32;
+
+  private final int rowNum;
+
+  private final int columnNum;
+
+  private final BigInteger[] numerators;
+
+  private final BigInteger denominator;
+
+  /**
+   * Takes ownership of the array, the denominator must be positive.
+   */
+  public IntegerMatrixStorage(int rowNum, int columnNum, BigInteger[] numerators,
+                              BigInteger denominator) {
+    this.rowNum = rowNum;
+    this.columnNum = columnNum;
+    this.numerators = numerators;
+    this.denominator = denominator;
+  }
+
+  /**
+   * Like the constructor, but first divides out the common factor of all numerators and the
+   * denominator.
+   */
+  public static IntegerMatrixStorage reduced(int rowNum, int columnNum, BigInteger[] numerators,
+                                             BigInteger denominator) {
+    BigInteger gcd = denominator;
+
+    for (int i = 0; i < numerators.length && !gcd.equals(BigInteger.ONE); ++i) {
+      gcd = gcd.gcd(numerators[i]);
+    }
+
+    if (!gcd.equals(BigInteger.ONE)) {
+      for (int i = 0; i < numerators.length; ++i) {
+        numerators[i] = numerators[i].divide(gcd);
+      }
+
+      denominator = denominator.divide(gcd);
+    }
+
+    return new IntegerMatrixStorage(rowNum, columnNum, numerators, denominator);
+  }
+
+  /**
+   * Returns null if the least common denominator of the elements is much larger than any of
+   * their denominators.
+   */
+  public static IntegerMatrixStorage fromRationals(Rational[][] value) {
+    int rowNum = value.length;
+    int columnNum = value[0].length;
+
+    BigInteger denominator = BigInteger.ONE;
+    int maxBits = 0;
+
+    for (Rational[] row : value) {
+      for (Rational element : row) {
+        BigInteger elementDenominator = element.canonical().getDenominator();
+
+        maxBits = Math.max(maxBits, elementDenominator.bitLength());
+        denominator = denominator.divide(denominator.gcd(elementDenominator))
+            .multiply(elementDenominator);
+
+        if (denominator.bitLength() > maxBits + COMMON_DENOMINATOR_SLACK) {
+          return null;
+        }
+      }
+    }
+
+    BigInteger[] numerators = new BigInteger[rowNum * columnNum];
+
+    for (int r = 0; r < rowNum; ++r) {
+      for (int c = 0; c < columnNum; ++c) {
+        Rational element = value[r][c].canonical();
+
+        numerators[r * columnNum + c] = element.getNumerator()
+            .multiply(denominator.divide(element.getDenominator()));
+      }
+    }
+
+    return new IntegerMatrixStorage(rowNum, columnNum, numerators, denominator);
+  }
+
+  @Override
+  public int getRowNum() {
+    return rowNum;
+  }
+
+  @Override
+  public int getColumnNum() {
+    return columnNum;
+  }
+
+  @Override
+  public Rational get(int row, int column) {
+    return new Rational(numerators[row * columnNum + column], denominator);
+  }
+
+  /**
+   * Returns the backing array, which must not be modified.
+   */
+  public BigInteger[] getNumerators() {
+    return numerators;
+  }
+
+  public BigInteger getDenominator() {
+    return denominator;
+  }
+
+}
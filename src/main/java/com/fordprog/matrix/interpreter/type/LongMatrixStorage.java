@@ -0,0 +1,85 @@
+package com.fordprog.matrix.interpreter.type;
+
+/**
+ * Stores every element as a reduced {@code long} numerator and denominator pair in two
+ * contiguous arrays, element {@code (r, c)} at index {@code r * columnNum + c}. Used when all
+ * elements fit, see {@link Rational#fitsInLong()}.
+ */
+public class LongMatrixStorage implements MatrixStorage {
+
+  private final int rowNum;
+
+  private final int columnNum;
+
+  private final long[] numerators;
+
+  private final long[] denominators;
+
+  /**
+   * Takes ownership of the arrays, which must hold reduced fractions with positive denominators.
+   */
+  public LongMatrixStorage(int rowNum, int columnNum, long[] numerators, long[] denominators) {
+    this.rowNum = rowNum;
+    this.columnNum = columnNum;
+    this.numerators = numerators;
+    this.denominators = denominators;
+  }
+
+  /**
+   * Returns null if some element does not fit into longs.
+   */
+  public static LongMatrixStorage fromRationals(Rational[][] value) {
+    int rowNum = value.length;
+    int columnNum = value[0].length;
+
+    long[] numerators = new long[rowNum * columnNum];
+    long[] denominators = new long[rowNum * columnNum];
+
+    for (int r = 0; r < rowNum; ++r) {
+      for (int c = 0; c < columnNum; ++c) {
+        Rational element = value[r][c].canonical();
+
+        if (!element.fitsInLong()) {
+          return null;
+        }
+
+        numerators[r * columnNum + c] = element.getLongNumerator();
+        denominators[r * columnNum + c] = element.getLongDenominator();
+      }
+    }
+
+    return new LongMatrixStorage(rowNum, columnNum, numerators, denominators);
+  }
+
+  @Override
+  public int getRowNum() {
+    return rowNum;
+  }
+
+  @Override
+  public int getColumnNum() {
+    return columnNum;
+  }
+
+  @Override
+  public Rational get(int row, int column) {
+    int index = row * columnNum + column;
+
+    return new Rational(numerators[index], denominators[index]);
+  }
+
+  /**
+   * Returns the backing array, which must not be modified.
+   */
+  public long[] getNumerators() {
+    return numerators;
+  }
+
+  /**
+   * Returns the backing array, which must not be modified.
+   */
+  public long[] getDenominators() {
+    return denominators;
+  }
+
+}
@@ -4,6 +4,8 @@ import com.fordprog.matrix.MatrixParser;
 import com.fordprog.matrix.interpreter.error.runtime.InvalidReadRuntimeError;
 import com.fordprog.matrix.interpreter.semantic.Scope;
 
+import java.util.Arrays;
+
 
 public class Matrix {
 
@@ -11,44 +13,56 @@ public class Matrix {
 
   private final int columnNum;
 
-  private final Rational[][] valueMatrix;
+  private final MatrixStorage storage;
+
+  // Materialized lazily by getValue()
+  private volatile Rational[][] valueMatrix;
+
+  // Detected lazily by getStructure()
+  private volatile MatrixStructure structure;
 
   public Matrix(int rowNum, int columnNum) {
     this.rowNum = rowNum;
     this.columnNum = columnNum;
 
-    valueMatrix = new Rational[rowNum][columnNum];
+    if (SparseMatrixStorage.isSparse(0L, rowNum, columnNum)) {
+      storage = SparseMatrixStorage.empty(rowNum, columnNum);
+      return;
+    }
+
+    long[] numerators = new long[rowNum * columnNum];
+    long[] denominators = new long[rowNum * columnNum];
+    Arrays.fill(denominators, 1L);
+
+    storage = new LongMatrixStorage(rowNum, columnNum, numerators, denominators);
   }
 
   public Matrix(Rational rational) {
-    this.rowNum = 1;
-    this.columnNum = 1;
-
-    valueMatrix = new Rational[1][1];
-    valueMatrix[0][0] = rational;
+    this(new Rational[][] {{rational}});
   }
 
   public Matrix(Matrix matrix) {
     this.rowNum = matrix.getRowNum();
     this.columnNum = matrix.getColumnNum();
 
-    valueMatrix = matrix.getValue();
+    storage = matrix.storage;
+
+    // Both only depend on the shared storage
+    valueMatrix = matrix.valueMatrix;
+    structure = matrix.structure;
   }
 
   public Matrix(Rational[][] rationalArray) {
-    int rowNum = rationalArray.length;
-    int columnNum = rationalArray[0].length;
-
-    this.rowNum = rowNum;
-    this.columnNum = columnNum;
+    this.rowNum = rationalArray.length;
+    this.columnNum = rationalArray[0].length;
 
-    valueMatrix = new Rational[rowNum][columnNum];
+    storage = createStorage(rationalArray);
+  }
 
-    for (int r = 0; r < rowNum; ++r) {
-      for (int c = 0; c < columnNum; ++c) {
-        valueMatrix[r][c] = new Rational(rationalArray[r][c]);
-      }
-    }
+  public Matrix(MatrixStorage storage) {
+    this.rowNum = storage.getRowNum();
+    this.columnNum = storage.getColumnNum();
+    this.storage = storage;
   }
 
   public static Matrix fromRational(Rational rational) {
@@ -90,16 +104,61 @@ public class Matrix {
     return rowNum == 1 && columnNum == 1;
   }
 
+  public MatrixStorage getStorage() {
+    return storage;
+  }
+
+  /**
+   * Returns the elements as a two dimensional array, which must not be modified.
+   */
   public Rational[][] getValue() {
-    return valueMatrix;
+    Rational[][] value = valueMatrix;
+
+    if (value == null) {
+      value = new Rational[rowNum][columnNum];
+
+      for (int r = 0; r < rowNum; ++r) {
+        for (int c = 0; c < columnNum; ++c) {
+          value[r][c] = storage.get(r, c);
+        }
+      }
+
+      valueMatrix = value;
+    }
+
+    return value;
+  }
+
+  /**
+   * Returns the shape of the non-zero pattern, detected on the first call.
+   */
+  public MatrixStructure getStructure() {
+    MatrixStructure cached = structure;
+
+    if (cached == null) {
+      cached = MatrixStructure.of(storage);
+      structure = cached;
+    }
+
+    return cached;
   }
 
   public double[][] getDoubleValue() {
     double[][] value = new double[getRowNum()][getColumnNum()];
 
+    if (storage instanceof DoubleMatrixStorage) {
+      double[] values = ((DoubleMatrixStorage) storage).getValues();
+
+      for (int r = 0; r < getRowNum(); ++r) {
+        System.arraycopy(values, r * columnNum, value[r], 0, columnNum);
+      }
+
+      return value;
+    }
+
     for (int r = 0; r < getRowNum(); ++r) {
       for (int c = 0; c < getColumnNum(); ++c) {
-        value[r][c] = valueMatrix[r][c].getValue();
+        value[r][c] = storage.get(r, c).getValue();
       }
     }
 
@@ -107,7 +166,7 @@ public class Matrix {
   }
 
   public Rational getValueAtPosition(int row, int col) {
-    return valueMatrix[row][col];
+    return storage.get(row, col);
   }
 
   public int getRowNum() {
@@ -123,7 +182,7 @@ public class Matrix {
     StringBuilder stringBuilder = new StringBuilder();
 
     stringBuilder.append("{\n");
-    for (Rational r[] : valueMatrix) {
+    for (Rational r[] : getValue()) {
       stringBuilder.append("  {");
 
       stringBuilder.append(r[0]);
@@ -137,4 +196,23 @@ public class Matrix {
 
     return stringBuilder.toString();
   }
+
+  // The most compact storage the elements fit in
+  private static MatrixStorage createStorage(Rational[][] rationalArray) {
+    MatrixStorage storage = SparseMatrixStorage.fromRationals(rationalArray);
+
+    if (storage == null) {
+      storage = LongMatrixStorage.fromRationals(rationalArray);
+    }
+
+    if (storage == null) {
+      storage = IntegerMatrixStorage.fromRationals(rationalArray);
+    }
+
+    if (storage == null) {
+      storage = RationalMatrixStorage.fromRationals(rationalArray);
+    }
+
+    return storage;
+  }
 }
@@ -0,0 +1,14 @@
+package com.fordprog.matrix.interpreter.type;
+
+/**
+ * Immutable, row-major element storage behind a {@link Matrix}.
+ */
+public interface MatrixStorage {
+
+  int getRowNum();
+
+  int getColumnNum();
+
+  Rational get(int row, int column);
+
+}
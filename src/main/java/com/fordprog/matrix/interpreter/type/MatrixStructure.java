@@ -0,0 +1,140 @@
+package com.fordprog.matrix.interpreter.type;
+
+/**
+ * Shape of the non-zero pattern of a matrix, detected in one pass over its storage, see
+ * {@link Matrix#getStructure()}. The lower (upper) bandwidth is the largest distance of a
+ * non-zero below (above) the diagonal, so e.g. a lower bandwidth of 0 means upper triangular.
+ */
+public class MatrixStructure {
+
+  private final boolean square;
+
+  private final int lowerBandwidth;
+
+  private final int upperBandwidth;
+
+  private final boolean unitDiagonal;
+
+  private final boolean symmetric;
+
+  private MatrixStructure(boolean square, int lowerBandwidth, int upperBandwidth,
+                          boolean unitDiagonal, boolean symmetric) {
+    this.square = square;
+    this.lowerBandwidth = lowerBandwidth;
+    this.upperBandwidth = upperBandwidth;
+    this.unitDiagonal = unitDiagonal;
+    this.symmetric = symmetric;
+  }
+
+  public static MatrixStructure of(MatrixStorage storage) {
+    if (storage instanceof SparseMatrixStorage) {
+      return ofSparse((SparseMatrixStorage) storage);
+    }
+
+    int rowNum = storage.getRowNum();
+    int columnNum = storage.getColumnNum();
+    boolean square = rowNum == columnNum;
+
+    int lowerBandwidth = 0;
+    int upperBandwidth = 0;
+    boolean unitDiagonal = square;
+    Rational one = new Rational(1L, 1L);
+
+    for (int r = 0; r < rowNum; ++r) {
+      for (int c = 0; c < columnNum; ++c) {
+        Rational element = storage.get(r, c);
+
+        if (r == c) {
+          unitDiagonal &= element.equals(one);
+        } else if (element.signum() != 0) {
+          lowerBandwidth = Math.max(lowerBandwidth, r - c);
+          upperBandwidth = Math.max(upperBandwidth, c - r);
+        }
+      }
+    }
+
+    boolean symmetric = square && lowerBandwidth == upperBandwidth;
+
+    for (int r = 0; r < rowNum && symmetric; ++r) {
+      for (int c = r + 1; c < Math.min(columnNum, r + upperBandwidth + 1) && symmetric; ++c) {
+        symmetric = storage.get(r, c).equals(storage.get(c, r));
+      }
+    }
+
+    return new MatrixStructure(square, lowerBandwidth, upperBandwidth, unitDiagonal, symmetric);
+  }
+
+  private static MatrixStructure ofSparse(SparseMatrixStorage storage) {
+    int rowNum = storage.getRowNum();
+    boolean square = rowNum == storage.getColumnNum();
+    int[] rowPointers = storage.getRowPointers();
+    int[] columnIndices = storage.getColumnIndices();
+    Rational[] values = storage.getValues();
+
+    int lowerBandwidth = 0;
+    int upperBandwidth = 0;
+    int diagonalOnes = 0;
+    Rational one = new Rational(1L, 1L);
+
+    for (int r = 0; r < rowNum; ++r) {
+      for (int p = rowPointers[r]; p < rowPointers[r + 1]; ++p) {
+        int c = columnIndices[p];
+
+        if (r == c) {
+          diagonalOnes += values[p].equals(one) ? 1 : 0;
+        } else {
+          lowerBandwidth = Math.max(lowerBandwidth, r - c);
+          upperBandwidth = Math.max(upperBandwidth, c - r);
+        }
+      }
+    }
+
+    boolean symmetric = square && lowerBandwidth == upperBandwidth;
+
+    for (int r = 0; r < rowNum && symmetric; ++r) {
+      for (int p = rowPointers[r]; p < rowPointers[r + 1] && symmetric; ++p) {
+        symmetric = values[p].equals(storage.get(columnIndices[p], r));
+      }
+    }
+
+    return new MatrixStructure(square, lowerBandwidth, upperBandwidth,
+        square && diagonalOnes == rowNum, symmetric);
+  }
+
+  public boolean isSquare() {
+    return square;
+  }
+
+  public int getLowerBandwidth() {
+    return lowerBandwidth;
+  }
+
+  public int getUpperBandwidth() {
+    return upperBandwidth;
+  }
+
+  public boolean isUpperTriangular() {
+    return square && lowerBandwidth == 0;
+  }
+
+  public boolean isLowerTriangular() {
+    return square && upperBandwidth == 0;
+  }
+
+  public boolean isDiagonal() {
+    return isUpperTriangular() && upperBandwidth == 0;
+  }
+
+  public boolean isTridiagonal() {
+    return square && lowerBandwidth <= 1 && upperBandwidth <= 1;
+  }
+
+  public boolean isIdentity() {
+    return isDiagonal() && unitDiagonal;
+  }
+
+  public boolean isSymmetric() {
+    return symmetric;
+  }
+
+}
@@ -3,46 +3,248 @@ package com.fordprog.matrix.interpreter.type;
 
 import com.fordprog.matrix.MatrixParser;
 import com.fordprog.matrix.interpreter.error.runtime.CannotConvertRuntimeError;
-import org.apache.commons.math3.fraction.BigFraction;
 
+import java.math.BigDecimal;
 import java.math.BigInteger;
 
 public class Rational {
 
-  public static final Rational TRUE = new Rational(BigInteger.ONE, BigInteger.ONE);
+  /**
+   * Decides when a newly created rational is reduced to its canonical form, i.e. divided by the
+   * gcd of its parts with a positive denominator.
+   */
+  public enum Normalization {
 
-  public static final Rational FALSE = new Rational(BigInteger.ZERO, BigInteger.ONE);
+    // Every rational is reduced on creation
+    EAGER,
 
+    // Rationals are only reduced once the bit-length of their parts crosses a threshold
+    LAZY
+
+  }
+
+  private static volatile Normalization normalization = Normalization.LAZY;
+
+  private static volatile int reductionThreshold = 64;
+
+  private static volatile long maxDenominator = 1000000000000L;
+
+  private static volatile double conversionTolerance = 1e-12;
+
+  public static final Rational TRUE = new Rational(1L, 1L);
+
+  public static final Rational FALSE = new Rational(0L, 1L);
+
+  // Set when both parts fit into a long (Long.MIN_VALUE excluded, so negation never overflows)
+  private final boolean small;
+
+  private final long longNumerator;
+
+  private final long longDenominator;
+
+  // Null when the rational was created from longs, see the caches below
   private final BigInteger numerator;
 
   private final BigInteger denominator;
 
+  // Lazy caches, only ever hold immutable objects so racy publication is harmless
+  private BigInteger numeratorCache;
+
+  private BigInteger denominatorCache;
+
+  // Refers to this instance when it is already canonical
+  private Rational canonical;
+
   public Rational(BigInteger numerator, BigInteger denominator) {
     if (numerator.signum() == -1 && denominator.signum() == -1) {
-      numerator = numerator.multiply(BigInteger.valueOf(-1L));
-      denominator = denominator.multiply(BigInteger.valueOf(-1L));
+      numerator = numerator.negate();
+      denominator = denominator.negate();
     }
 
+    if (needsReduction(numerator.bitLength() + denominator.bitLength())) {
+      BigInteger gcd = numerator.gcd(denominator);
+
+      if (gcd.signum() != 0) {
+        if (denominator.signum() == -1) {
+          gcd = gcd.negate();
+        }
+
+        numerator = numerator.divide(gcd);
+        denominator = denominator.divide(gcd);
+      }
+    }
+
+    this.small = fitsInLong(numerator) && fitsInLong(denominator);
+    this.longNumerator = small ? numerator.longValue() : 0L;
+    this.longDenominator = small ? denominator.longValue() : 0L;
+
     this.numerator = numerator;
     this.denominator = denominator;
   }
 
+  public Rational(long numerator, long denominator) {
+    if (numerator == Long.MIN_VALUE || denominator == Long.MIN_VALUE) {
+      BigInteger bigNumerator = BigInteger.valueOf(numerator);
+      BigInteger bigDenominator = BigInteger.valueOf(denominator);
+
+      if (numerator < 0 && denominator < 0) {
+        bigNumerator = bigNumerator.negate();
+        bigDenominator = bigDenominator.negate();
+      }
+
+      this.small = false;
+      this.longNumerator = 0L;
+      this.longDenominator = 0L;
+      this.numerator = bigNumerator;
+      this.denominator = bigDenominator;
+
+      return;
+    }
+
+    if (numerator < 0 && denominator < 0) {
+      numerator = -numerator;
+      denominator = -denominator;
+    }
+
+    if (needsReduction(bitLength(numerator) + bitLength(denominator))) {
+      long gcd = greatestCommonDivisor(numerator, denominator);
+
+      if (gcd != 0L) {
+        if (denominator < 0) {
+          gcd = -gcd;
+        }
+
+        numerator /= gcd;
+        denominator /= gcd;
+      }
+    }
+
+    this.small = true;
+    this.longNumerator = numerator;
+    this.longDenominator = denominator;
+    this.numerator = null;
+    this.denominator = null;
+  }
+
   public Rational(Rational rational) {
-    this.numerator = rational.getNumerator().add(BigInteger.ZERO);
-    this.denominator = rational.getDenominator().add(BigInteger.ZERO);
+    this.small = rational.small;
+    this.longNumerator = rational.longNumerator;
+    this.longDenominator = rational.longDenominator;
+    this.numerator = rational.numerator;
+    this.denominator = rational.denominator;
+    this.numeratorCache = rational.numeratorCache;
+    this.denominatorCache = rational.denominatorCache;
+    this.canonical = rational.canonical;
   }
 
+  /**
+   * Creates the simplest rational close to {@code d}, see {@link #approximate(double, long,
+   * double)} and the conversion settings of this class.
+   */
   public Rational(double d) {
-    if (Math.abs(d) < 1e-15) {
-      this.numerator = BigInteger.ZERO;
-      this.denominator = BigInteger.ONE;
+    this(approximate(d, maxDenominator, conversionTolerance));
+  }
 
-    } else {
-      BigFraction fraction = new BigFraction(d);
+  public static Normalization getNormalization() {
+    return normalization;
+  }
 
-      this.numerator = fraction.getNumerator();
-      this.denominator = fraction.getDenominator();
+  public static void setNormalization(Normalization normalization) {
+    Rational.normalization = normalization;
+  }
+
+  public static int getReductionThreshold() {
+    return reductionThreshold;
+  }
+
+  /**
+   * Sets the combined bit-length of numerator and denominator above which
+   * {@link Normalization#LAZY} reduces a rational.
+   */
+  public static void setReductionThreshold(int reductionThreshold) {
+    Rational.reductionThreshold = reductionThreshold;
+  }
+
+  public static long getMaxDenominator() {
+    return maxDenominator;
+  }
+
+  /**
+   * Sets the largest denominator {@link #Rational(double)} may create.
+   */
+  public static void setMaxDenominator(long maxDenominator) {
+    Rational.maxDenominator = maxDenominator;
+  }
+
+  public static double getConversionTolerance() {
+    return conversionTolerance;
+  }
+
+  /**
+   * Sets the error {@link #Rational(double)} accepts, relative to the converted value.
+   */
+  public static void setConversionTolerance(double conversionTolerance) {
+    Rational.conversionTolerance = conversionTolerance;
+  }
+
+  /**
+   * Returns the first continued fraction convergent of {@code value} that is within
+   * {@code tolerance * |value|} of it. If there is none with a denominator of at most
+   * {@code maxDenominator}, the last convergent below that bound is returned, so values below
+   * about {@code 1 / maxDenominator} become 0. Doubles too large for a long are integers and are
+   * converted exactly.
+   */
+  public static Rational approximate(double value, long maxDenominator, double tolerance) {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      throw new CannotConvertRuntimeError("Cannot convert " + value + " to Rational");
+    }
+
+    if (Math.abs(value) >= 0x1p62) {
+      return new Rational(new BigDecimal(value).toBigInteger(), BigInteger.ONE);
+    }
+
+    if (value == 0.0) {
+      return new Rational(0L, 1L);
     }
+
+    double bound = tolerance * Math.abs(value);
+
+    long previousNumerator = 1L;
+    long previousDenominator = 0L;
+    long numerator = (long) Math.floor(value);
+    long denominator = 1L;
+    double remainder = value - Math.floor(value);
+
+    while (Math.abs(value - (double) numerator / denominator) > bound && remainder != 0.0) {
+      double reciprocal = 1.0 / remainder;
+
+      if (reciprocal >= 0x1p62) {
+        break;
+      }
+
+      long term = (long) Math.floor(reciprocal);
+
+      if (denominator > (maxDenominator - previousDenominator) / term) {
+        break;
+      }
+
+      long nextNumerator;
+      try {
+        nextNumerator = Math.addExact(Math.multiplyExact(term, numerator), previousNumerator);
+      } catch (ArithmeticException e) {
+        break;
+      }
+
+      long nextDenominator = term * denominator + previousDenominator;
+
+      previousNumerator = numerator;
+      previousDenominator = denominator;
+      numerator = nextNumerator;
+      denominator = nextDenominator;
+      remainder = reciprocal - term;
+    }
+
+    return new Rational(numerator, denominator);
   }
 
   public static Rational fromMatrix(Matrix matrix) {
@@ -62,29 +264,202 @@ public class Rational {
   }
 
   public BigInteger getNumerator() {
-    return numerator;
+    if (numerator != null) {
+      return numerator;
+    }
+
+    BigInteger cached = numeratorCache;
+
+    if (cached == null) {
+      cached = BigInteger.valueOf(longNumerator);
+      numeratorCache = cached;
+    }
+
+    return cached;
   }
 
   public BigInteger getDenominator() {
-    return denominator;
+    if (denominator != null) {
+      return denominator;
+    }
+
+    BigInteger cached = denominatorCache;
+
+    if (cached == null) {
+      cached = BigInteger.valueOf(longDenominator);
+      denominatorCache = cached;
+    }
+
+    return cached;
+  }
+
+  /**
+   * Tells whether both the numerator and the denominator are available as primitive longs,
+   * in which case {@link #getLongNumerator()} and {@link #getLongDenominator()} can be used
+   * instead of the {@link BigInteger} getters.
+   */
+  public boolean fitsInLong() {
+    return small;
+  }
+
+  public long getLongNumerator() {
+    return longNumerator;
+  }
+
+  public long getLongDenominator() {
+    return longDenominator;
+  }
+
+  /**
+   * Returns -1, 0 or 1 as the value of this rational is negative, zero or positive.
+   */
+  public int signum() {
+    if (small) {
+      return Long.signum(longNumerator) * Long.signum(longDenominator);
+    }
+
+    return numerator.signum() * denominator.signum();
+  }
+
+  /**
+   * Returns the combined bit-length of the numerator and the denominator, a measure of how
+   * expensive arithmetic with this rational is.
+   */
+  public int bitLength() {
+    if (small) {
+      return bitLength(longNumerator) + bitLength(longDenominator);
+    }
+
+    return numerator.bitLength() + denominator.bitLength();
   }
 
   public double getValue() {
+    if (small) {
+      return (double) longNumerator / (double) longDenominator;
+    }
+
     return numerator.doubleValue() / denominator.doubleValue();
   }
 
   public boolean isEqual(Rational other) {
-    if (numerator.compareTo(BigInteger.ZERO) == 0) {
-      return other.getNumerator().compareTo(BigInteger.ZERO) == 0;
+    Rational a = canonical();
+    Rational b = other.canonical();
+
+    if (a.small && b.small) {
+      if (a.longNumerator == 0L) {
+        return b.longNumerator == 0L;
+      }
+
+      return a.longNumerator == b.longNumerator && a.longDenominator == b.longDenominator;
+    }
+
+    if (a.getNumerator().signum() == 0) {
+      return b.getNumerator().signum() == 0;
+    }
+
+    return a.getNumerator().equals(b.getNumerator())
+        && a.getDenominator().equals(b.getDenominator());
+  }
+
+  /**
+   * Returns the gcd-reduced form of this rational with a non-negative denominator.
+   */
+  public Rational canonical() {
+    Rational cached = canonical;
+
+    if (cached == null) {
+      cached = computeCanonical();
+      canonical = cached;
+    }
+
+    return cached;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
     }
 
-    return numerator.compareTo(other.getNumerator()) == 0
-        && denominator.compareTo(other.getDenominator()) == 0;
+    return o instanceof Rational && isEqual((Rational) o);
+  }
+
+  @Override
+  public int hashCode() {
+    Rational c = canonical();
+
+    if (c.small) {
+      return c.longNumerator == 0L ? 0 : 31 * Long.hashCode(c.longNumerator)
+          + Long.hashCode(c.longDenominator);
+    }
+
+    return 31 * c.numerator.hashCode() + c.denominator.hashCode();
   }
 
   @Override
   public String toString() {
-    return String.valueOf(numerator) + "|" +
-        String.valueOf(denominator);
+    Rational c = canonical();
+
+    if (c.small) {
+      return String.valueOf(c.longNumerator) + "|" +
+          String.valueOf(c.longDenominator);
+    }
+
+    return String.valueOf(c.numerator) + "|" +
+        String.valueOf(c.denominator);
+  }
+
+  private Rational computeCanonical() {
+    if (small) {
+      long gcd = greatestCommonDivisor(longNumerator, longDenominator);
+
+      if (gcd == 0L) {
+        return this;
+      }
+
+      if (longDenominator < 0) {
+        gcd = -gcd;
+      }
+
+      return gcd == 1L ? this : new Rational(longNumerator / gcd, longDenominator / gcd);
+    }
+
+    BigInteger gcd = numerator.gcd(denominator);
+
+    if (gcd.signum() == 0) {
+      return this;
+    }
+
+    if (denominator.signum() == -1) {
+      gcd = gcd.negate();
+    }
+
+    return gcd.equals(BigInteger.ONE) ? this
+        : new Rational(numerator.divide(gcd), denominator.divide(gcd));
+  }
+
+  private static boolean needsReduction(int bitLength) {
+    return normalization == Normalization.EAGER || bitLength > reductionThreshold;
+  }
+
+  private static int bitLength(long value) {
+    return 64 - Long.numberOfLeadingZeros(Math.abs(value));
+  }
+
+  private static long greatestCommonDivisor(long a, long b) {
+    a = Math.abs(a);
+    b = Math.abs(b);
+
+    while (b != 0L) {
+      long t = a % b;
+      a = b;
+      b = t;
+    }
+
+    return a;
+  }
+
+  private static boolean fitsInLong(BigInteger value) {
+    return value.bitLength() <= 63 && value.longValue() != Long.MIN_VALUE;
   }
 }
@@ -0,0 +1,59 @@
+package com.fordprog.matrix.interpreter.type;
+
+/**
+ * Fallback storage for matrices with elements too large for {@link LongMatrixStorage}: one flat,
+ * row-major array of rationals.
+ */
+public class RationalMatrixStorage implements MatrixStorage {
+
+  private final int rowNum;
+
+  private final int columnNum;
+
+  private final Rational[] values;
+
+  /**
+   * Takes ownership of the array.
+   */
+  public RationalMatrixStorage(int rowNum, int columnNum, Rational[] values) {
+    this.rowNum = rowNum;
+    this.columnNum = columnNum;
+    this.values = values;
+  }
+
+  public static RationalMatrixStorage fromRationals(Rational[][] value) {
+    int rowNum = value.length;
+    int columnNum = value[0].length;
+
+    Rational[] values = new Rational[rowNum * columnNum];
+
+    for (int r = 0; r < rowNum; ++r) {
+      System.arraycopy(value[r], 0, values, r * columnNum, columnNum);
+    }
+
+    return new RationalMatrixStorage(rowNum, columnNum, values);
+  }
+
+  @Override
+  public int getRowNum() {
+    return rowNum;
+  }
+
+  @Override
+  public int getColumnNum() {
+    return columnNum;
+  }
+
+  @Override
+  public Rational get(int row, int column) {
+    return values[row * columnNum + column];
+  }
+
+  /**
+   * Returns the backing array, which must not be modified.
+   */
+  public Rational[] getValues() {
+    return values;
+  }
+
+}
@@ -0,0 +1,189 @@
+package com.fordprog.matrix.interpreter.type;
+
+import java.util.Arrays;
+
+/**
+ * Compressed sparse row storage: only the non-zero elements are kept. The non-zeros of row
+ * {@code r} are {@code values[rowPointers[r] .. rowPointers[r + 1])}, in increasing column order,
+ * with their columns in {@code columnIndices}. Used for large matrices with few non-zeros, see
+ * {@link #isSparse(long, int, int)}.
+ */
+public class SparseMatrixStorage implements MatrixStorage {
+
+  // Below this many elements the dense storages are always good enough
+  private static final long MIN_SIZE = 256L;
+
+  private static final Rational ZERO = new Rational(0L, 1L);
+
+  private static volatile double densityThreshold = 0.1;
+
+  private final int rowNum;
+
+  private final int columnNum;
+
+  private final int[] rowPointers;
+
+  private final int[] columnIndices;
+
+  private final Rational[] values;
+
+  /**
+   * Takes ownership of the arrays, which must hold non-zero values in increasing column order
+   * within every row.
+   */
+  public SparseMatrixStorage(int rowNum, int columnNum, int[] rowPointers, int[] columnIndices,
+                             Rational[] values) {
+    this.rowNum = rowNum;
+    this.columnNum = columnNum;
+    this.rowPointers = rowPointers;
+    this.columnIndices = columnIndices;
+    this.values = values;
+  }
+
+  /**
+   * Creates a matrix of zeros.
+   */
+  public static SparseMatrixStorage empty(int rowNum, int columnNum) {
+    return new SparseMatrixStorage(rowNum, columnNum, new int[rowNum + 1], new int[0],
+        new Rational[0]);
+  }
+
+  public static double getDensityThreshold() {
+    return densityThreshold;
+  }
+
+  /**
+   * Sets the fraction of non-zero elements up to which large matrices are stored sparse.
+   */
+  public static void setDensityThreshold(double densityThreshold) {
+    SparseMatrixStorage.densityThreshold = densityThreshold;
+  }
+
+  /**
+   * Tells whether a {@code rowNum x columnNum} matrix with {@code nonZeros} non-zero elements
+   * should be stored sparse.
+   */
+  public static boolean isSparse(long nonZeros, int rowNum, int columnNum) {
+    long size = (long) rowNum * columnNum;
+
+    return size >= MIN_SIZE && nonZeros <= densityThreshold * size;
+  }
+
+  /**
+   * Returns null if the matrix is too dense, see {@link #isSparse(long, int, int)}.
+   */
+  public static SparseMatrixStorage fromRationals(Rational[][] value) {
+    int rowNum = value.length;
+    int columnNum = value[0].length;
+    long nonZeros = 0L;
+
+    for (Rational[] row : value) {
+      for (Rational element : row) {
+        if (element.signum() != 0) {
+          ++nonZeros;
+        }
+      }
+    }
+
+    if (!isSparse(nonZeros, rowNum, columnNum)) {
+      return null;
+    }
+
+    int[] rowPointers = new int[rowNum + 1];
+    int[] columnIndices = new int[(int) nonZeros];
+    Rational[] values = new Rational[(int) nonZeros];
+    int index = 0;
+
+    for (int r = 0; r < rowNum; ++r) {
+      for (int c = 0; c < columnNum; ++c) {
+        if (value[r][c].signum() != 0) {
+          columnIndices[index] = c;
+          values[index] = value[r][c];
+          ++index;
+        }
+      }
+
+      rowPointers[r + 1] = index;
+    }
+
+    return new SparseMatrixStorage(rowNum, columnNum, rowPointers, columnIndices, values);
+  }
+
+  /**
+   * Converts any storage, regardless of its density.
+   */
+  public static SparseMatrixStorage fromStorage(MatrixStorage storage) {
+    if (storage instanceof SparseMatrixStorage) {
+      return (SparseMatrixStorage) storage;
+    }
+
+    int rowNum = storage.getRowNum();
+    int columnNum = storage.getColumnNum();
+
+    int[] rowPointers = new int[rowNum + 1];
+    int[] columnIndices = new int[rowNum * columnNum];
+    Rational[] values = new Rational[rowNum * columnNum];
+    int index = 0;
+
+    for (int r = 0; r < rowNum; ++r) {
+      for (int c = 0; c < columnNum; ++c) {
+        Rational element = storage.get(r, c);
+
+        if (element.signum() != 0) {
+          columnIndices[index] = c;
+          values[index] = element;
+          ++index;
+        }
+      }
+
+      rowPointers[r + 1] = index;
+    }
+
+    return new SparseMatrixStorage(rowNum, columnNum, rowPointers,
+        Arrays.copyOf(columnIndices, index), Arrays.copyOf(values, index));
+  }
+
+  @Override
+  public int getRowNum() {
+    return rowNum;
+  }
+
+  @Override
+  public int getColumnNum() {
+    return columnNum;
+  }
+
+  @Override
+  public Rational get(int row, int column) {
+    int index = Arrays.binarySearch(columnIndices, rowPointers[row], rowPointers[row + 1],
+        column);
+
+    return index >= 0 ? values[index] : ZERO;
+  }
+
+  public int getNonZeroCount() {
+    return values.length;
+  }
+
+  /**
+   * Returns the backing array, which must not be modified.
+   */
+  public int[] getRowPointers() {
+    return rowPointers;
+  }
+
+  /**
+   * Returns the backing array, which must not be modified.
+   */
+  public int[] getColumnIndices() {
+    return columnIndices;
+  }
+
+  /**
+   * Returns the backing array, which must not be modified.
+   */
+  public Rational[] getValues() {
+    return values;
+  }
+
+}
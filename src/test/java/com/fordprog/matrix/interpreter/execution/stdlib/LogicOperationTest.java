@@ -0,0 +1,147 @@
+package com.fordprog.matrix.interpreter.execution.stdlib;
+
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import com.fordprog.matrix.interpreter.type.Rational;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+public class LogicOperationTest {
+
+  private static LogicOperation logicOperation;
+
+  @BeforeClass
+  public static void setUp() {
+    logicOperation = LogicOperation.getInstance();
+  }
+
+  @Test
+  public void compareWithNegativeDenominators() {
+    // Given
+    Rational a = new Rational(1L, -2L);
+
+    Rational b = new Rational(-1L, 3L);
+
+    // When
+    int result = logicOperation.compare(a, b);
+
+    // Then
+    assertThat(result, equalTo(-1));
+  }
+
+  @Test
+  public void compareWithSharedNegativeDenominator() {
+    // Given
+    Rational a = new Rational(1L, -2L);
+
+    Rational b = new Rational(3L, -2L);
+
+    // When
+    int result = logicOperation.compare(a, b);
+    int magnitudeResult = logicOperation.compareMagnitude(a, b);
+
+    // Then
+    assertThat(result, equalTo(1));
+    assertThat(magnitudeResult, equalTo(-1));
+  }
+
+  @Test
+  public void compareWithDifferentSigns() {
+    // Given
+    Rational a = new Rational(0L, 5L);
+
+    Rational b = new Rational(-7L, -9L);
+
+    // When
+    int result = logicOperation.compare(a, b);
+
+    // Then
+    assertThat(result, equalTo(-1));
+  }
+
+  @Test
+  public void compareEqualValuesInDifferentForms() {
+    // Given
+    Rational a = new Rational(6L, -8L);
+
+    Rational b = new Rational(-3L, 4L);
+
+    // When
+    boolean result = logicOperation.isEqualTo(a, b);
+
+    // Then
+    assertThat(result, equalTo(true));
+  }
+
+  @Test
+  public void compareWithLongOverflow() {
+    // Given
+    Rational a = new Rational(Long.MAX_VALUE - 1L, Long.MAX_VALUE);
+
+    Rational b = new Rational(Long.MAX_VALUE - 2L, Long.MAX_VALUE - 1L);
+
+    // When
+    int result = logicOperation.compare(a, b);
+
+    // Then
+    assertThat(result, equalTo(1));
+  }
+
+  @Test
+  public void compareMagnitudeWithTwoNegative() {
+    // Given
+    Rational a = new Rational(BigInteger.valueOf(-5L), BigInteger.valueOf(2L));
+
+    Rational b = new Rational(BigInteger.valueOf(3L), BigInteger.valueOf(-1L));
+
+    // When
+    int result = logicOperation.compareMagnitude(a, b);
+
+    // Then
+    assertThat(result, equalTo(-1));
+  }
+
+  @Test
+  public void compareWithFloatingPointFilter() {
+    // Given
+    BigInteger big = BigInteger.ONE.shiftLeft(200);
+
+    Rational a = new Rational(big, big.add(BigInteger.ONE));
+
+    Rational b = new Rational(big.shiftLeft(1), big);
+
+    long decided = ExecutionStatistics.getInstance().get("compare.filter.decided");
+
+    // When
+    int result = logicOperation.compare(a, b);
+
+    // Then
+    assertThat(result, equalTo(-1));
+    assertThat(ExecutionStatistics.getInstance().get("compare.filter.decided"),
+        equalTo(decided + 1));
+  }
+
+  @Test
+  public void compareNearTieFallsBackToExact() {
+    // Given
+    BigInteger big = BigInteger.ONE.shiftLeft(200);
+
+    Rational a = new Rational(big, big.add(BigInteger.ONE));
+
+    Rational b = new Rational(big.add(BigInteger.ONE), big.add(BigInteger.valueOf(2L)));
+
+    long undecided = ExecutionStatistics.getInstance().get("compare.filter.undecided");
+
+    // When
+    int result = logicOperation.compare(a, b);
+
+    // Then
+    assertThat(result, equalTo(-1));
+    assertThat(ExecutionStatistics.getInstance().get("compare.filter.undecided"),
+        equalTo(undecided + 1));
+  }
+}
@@ -0,0 +1,798 @@
+package com.fordprog.matrix.interpreter.execution.stdlib;
+
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import com.fordprog.matrix.interpreter.error.runtime.InvalidOperationParameterRuntimeError;
+import com.fordprog.matrix.interpreter.type.DoubleMatrixStorage;
+import com.fordprog.matrix.interpreter.type.IntegerMatrixStorage;
+import com.fordprog.matrix.interpreter.type.LongMatrixStorage;
+import com.fordprog.matrix.interpreter.type.Matrix;
+import com.fordprog.matrix.interpreter.type.MatrixStructure;
+import com.fordprog.matrix.interpreter.type.Rational;
+import com.fordprog.matrix.interpreter.type.SparseMatrixStorage;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+public class MatrixOperationTest {
+
+  private static MatrixOperation matrixOperation;
+
+  @BeforeClass
+  public static void setUp() {
+    matrixOperation = MatrixOperation.getInstance();
+  }
+
+  @Test
+  public void determinantWithFractions() {
+    // Given
+    Matrix m = matrix(new long[][] {{2, 1, 1}, {4, -6, 0}, {-2, 7, 2}}, 3);
+
+    Rational expected = new Rational(-16L, 27L);
+
+    // When
+    Rational result = matrixOperation.determinant(m);
+
+    // Then
+    assertThat(result, equalTo(expected));
+  }
+
+  @Test
+  public void determinantWithZeroPivot() {
+    // Given
+    Matrix m = matrix(new long[][] {{0, 1, 2}, {1, 0, 3}, {4, -3, 8}}, 1);
+
+    Rational expected = new Rational(-2L, 1L);
+
+    // When
+    Rational result = matrixOperation.determinant(m);
+
+    // Then
+    assertThat(result, equalTo(expected));
+  }
+
+  @Test
+  public void determinantOfSingular() {
+    // Given
+    Matrix m = matrix(new long[][] {{1, 2, 3}, {4, 5, 6}, {7, 8, 9}}, 5);
+
+    // When
+    Rational result = matrixOperation.determinant(m);
+
+    // Then
+    assertThat(result.signum(), equalTo(0));
+  }
+
+  @Test
+  public void determinantInParallel() {
+    // Given
+    Matrix m = randomMatrix(40, 7L);
+
+    ParallelExecution parallelExecution = ParallelExecution.getInstance();
+    int threshold = parallelExecution.getThreshold();
+
+    Rational sequential = matrixOperation.determinant(m);
+
+    // When
+    parallelExecution.setThreshold(1);
+    Rational result;
+    try {
+      result = matrixOperation.determinant(m);
+    } finally {
+      parallelExecution.setThreshold(threshold);
+    }
+
+    // Then
+    assertThat(result, equalTo(sequential));
+  }
+
+  @Test
+  public void inverseTimesMatrixIsIdentity() {
+    // Given
+    Matrix m = randomMatrix(8, 3L);
+
+    // When
+    Matrix result = matrixOperation.multiply(matrixOperation.inverse(m), m);
+
+    // Then
+    assertIdentity(result);
+  }
+
+  @Test
+  public void solveWithStoredDecomposition() {
+    // Given
+    Matrix m = matrix(new long[][] {{2, 1, 1}, {4, -6, 0}, {-2, 7, 2}}, 1);
+    Matrix v = matrix(new long[][] {{5, -2, 9}}, 1);
+
+    Matrix packed = matrixOperation.decompose(m);
+
+    // When
+    Matrix result =
+        matrixOperation.solveWithDecomposition(LUDecomposition.fromMatrix(packed), v);
+
+    // Then
+    Matrix expected = matrixOperation.solveLinearSystem(m, v);
+    for (int c = 0; c < 3; ++c) {
+      assertThat(result.getValueAtPosition(0, c), equalTo(expected.getValueAtPosition(0, c)));
+    }
+    assertThat(LUDecomposition.fromMatrix(packed).determinant(),
+        equalTo(matrixOperation.determinant(m)));
+  }
+
+  @Test
+  public void solveManyRightHandSides() {
+    // Given
+    Matrix m = randomMatrix(6, 11L);
+    Matrix b = matrixOperation.transpose(randomMatrix(6, 12L));
+
+    // When
+    Matrix result = matrixOperation.solveLinearSystems(m, b);
+
+    // Then
+    for (int r = 0; r < b.getRowNum(); ++r) {
+      Rational[][] row = {b.getValue()[r]};
+      Matrix expected = matrixOperation.solveLinearSystem(m, new Matrix(row));
+
+      for (int c = 0; c < 6; ++c) {
+        assertThat(result.getValueAtPosition(r, c), equalTo(expected.getValueAtPosition(0, c)));
+      }
+    }
+  }
+
+  @Test
+  public void multiModularMatchesBareiss() {
+    // Given
+    Matrix m = randomMatrix(12, 21L);
+
+    MultiModularEngine engine = MultiModularEngine.getInstance();
+
+    // When
+    Rational result = engine.determinant(m.getValue());
+
+    // Then
+    assertThat(result, equalTo(BareissDeterminant.getInstance().determinant(m.getValue())));
+  }
+
+  @Test
+  public void multiModularInverse() {
+    // Given
+    Matrix m = randomMatrix(10, 5L);
+
+    // When
+    Matrix result = new Matrix(MultiModularEngine.getInstance().inverse(m.getValue()));
+
+    // Then
+    assertIdentity(matrixOperation.multiply(result, m));
+  }
+
+  @Test
+  public void rankOfDependentRows() {
+    // Given
+    Matrix m = matrix(new long[][] {{1, 2, 3, 4}, {2, 4, 6, 8}, {0, 1, 1, 1}}, 3);
+
+    // When
+    Rational result = matrixOperation.rank(m);
+
+    // Then
+    assertThat(result, equalTo(new Rational(2L, 1L)));
+  }
+
+  @Test
+  public void dixonMatchesEliminationSolution() {
+    // Given
+    Matrix m = randomMatrix(15, 31L);
+    Matrix v = matrixOperation.transpose(randomMatrix(15, 32L));
+    Rational[] b = v.getValue()[0];
+
+    Rational[][] expected = {LUDecomposition.decompose(m).solve(b)};
+
+    // When
+    Rational[] result = DixonSolver.getInstance().solve(m.getValue(), b);
+
+    // Then
+    for (int c = 0; c < 15; ++c) {
+      assertThat(result[c], equalTo(expected[0][c]));
+    }
+  }
+
+  @Test
+  public void minimalSizePivotingGivesSameSolution() {
+    // Given
+    Matrix m = randomMatrix(8, 41L);
+    Rational[] b = matrixOperation.transpose(randomMatrix(8, 42L)).getValue()[0];
+
+    Rational[] expected = LUDecomposition.decompose(m).solve(b);
+
+    // When
+    LUDecomposition decomposition = LUDecomposition.decompose(m, new MinimalSizePivotStrategy());
+    Rational[] result = decomposition.solve(b);
+
+    // Then
+    for (int c = 0; c < 8; ++c) {
+      assertThat(result[c], equalTo(expected[c]));
+    }
+    assertThat(decomposition.determinant(), equalTo(matrixOperation.determinant(m)));
+  }
+
+  @Test
+  public void multiplyOnLongStorage() {
+    // Given
+    Matrix a = randomMatrix(7, 51L);
+    Matrix b = randomMatrix(7, 52L);
+
+    RationalOperation rationalOperation = RationalOperation.getInstance();
+
+    // When
+    Matrix result = matrixOperation.multiply(a, b);
+
+    // Then
+    assertThat(result.getStorage() instanceof LongMatrixStorage, equalTo(true));
+    for (int r = 0; r < 7; ++r) {
+      for (int c = 0; c < 7; ++c) {
+        Rational expected = new Rational(0L, 1L);
+        for (int i = 0; i < 7; ++i) {
+          expected = rationalOperation.add(expected, rationalOperation
+              .multiply(a.getValueAtPosition(r, i), b.getValueAtPosition(i, c)));
+        }
+        assertThat(result.getValueAtPosition(r, c), equalTo(expected));
+      }
+    }
+  }
+
+  @Test
+  public void strassenMultiplicationWithOddSize() {
+    // Given
+    Random random = new Random(61L);
+    Rational[][] aValue = new Rational[11][11];
+    Rational[][] bValue = new Rational[11][11];
+
+    for (int r = 0; r < 11; ++r) {
+      for (int c = 0; c < 11; ++c) {
+        aValue[r][c] = new Rational(new BigInteger(90, random).negate(), BigInteger.valueOf(3L));
+        bValue[r][c] = new Rational(new BigInteger(90, random), BigInteger.valueOf(7L));
+      }
+    }
+
+    Matrix a = new Matrix(aValue);
+    Matrix b = new Matrix(bValue);
+
+    Matrix expected = matrixOperation.multiply(a, b);
+
+    StrassenMultiplication strassenMultiplication = StrassenMultiplication.getInstance();
+    int cutoff = strassenMultiplication.getCutoff();
+    int minBitLength = strassenMultiplication.getMinBitLength();
+
+    // When
+    strassenMultiplication.setCutoff(2);
+    strassenMultiplication.setMinBitLength(0);
+    Matrix result;
+    try {
+      result = matrixOperation.multiply(a, b);
+    } finally {
+      strassenMultiplication.setCutoff(cutoff);
+      strassenMultiplication.setMinBitLength(minBitLength);
+    }
+
+    // Then
+    assertThat(result.getStorage() instanceof IntegerMatrixStorage, equalTo(true));
+    for (int r = 0; r < 11; ++r) {
+      for (int c = 0; c < 11; ++c) {
+        assertThat(result.getValueAtPosition(r, c), equalTo(expected.getValueAtPosition(r, c)));
+      }
+    }
+  }
+
+  @Test
+  public void sparseKernelsMatchDenseResults() {
+    // Given
+    Random random = new Random(71L);
+    Rational[][] aValue = new Rational[20][20];
+    Rational[][] bValue = new Rational[20][20];
+
+    for (int r = 0; r < 20; ++r) {
+      for (int c = 0; c < 20; ++c) {
+        aValue[r][c] = new Rational(random.nextInt(20) == 0 ? random.nextInt(9) - 4 : 0, 3L);
+        bValue[r][c] = new Rational(random.nextInt(20) == 0 ? random.nextInt(9) + 1 : 0, 2L);
+      }
+    }
+
+    Matrix a = new Matrix(aValue);
+    Matrix b = new Matrix(bValue);
+    Rational s = new Rational(-5L, 7L);
+
+    double densityThreshold = SparseMatrixStorage.getDensityThreshold();
+    Matrix[] expected;
+    try {
+      SparseMatrixStorage.setDensityThreshold(-1.0);
+      Matrix denseA = new Matrix(aValue);
+      Matrix denseB = new Matrix(bValue);
+
+      expected = new Matrix[] {matrixOperation.add(denseA, denseB),
+          matrixOperation.subtract(denseA, denseB), matrixOperation.multiply(denseA, denseB),
+          matrixOperation.transpose(denseA), matrixOperation.scalarMultiply(denseA, s)};
+    } finally {
+      SparseMatrixStorage.setDensityThreshold(densityThreshold);
+    }
+
+    // When
+    Matrix[] result = {matrixOperation.add(a, b), matrixOperation.subtract(a, b),
+        matrixOperation.multiply(a, b), matrixOperation.transpose(a),
+        matrixOperation.scalarMultiply(a, s)};
+
+    // Then
+    assertThat(a.getStorage() instanceof SparseMatrixStorage, equalTo(true));
+    for (int i = 0; i < result.length; ++i) {
+      assertThat(result[i].getStorage() instanceof SparseMatrixStorage, equalTo(true));
+      for (int r = 0; r < 20; ++r) {
+        for (int c = 0; c < 20; ++c) {
+          assertThat(result[i].getValueAtPosition(r, c),
+              equalTo(expected[i].getValueAtPosition(r, c)));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void multiplyLargeSparseMatrices() {
+    // Given
+    int n = 10000;
+    int[] rowPointers = new int[n + 1];
+    int[] columnIndices = new int[2 * n - 1];
+    Rational[] values = new Rational[2 * n - 1];
+
+    // 1 on the diagonal, 1/2 above it
+    for (int r = 0, index = 0; r < n; ++r) {
+      columnIndices[index] = r;
+      values[index++] = new Rational(1L, 1L);
+
+      if (r + 1 < n) {
+        columnIndices[index] = r + 1;
+        values[index++] = new Rational(1L, 2L);
+      }
+
+      rowPointers[r + 1] = index;
+    }
+
+    Matrix a = new Matrix(new SparseMatrixStorage(n, n, rowPointers, columnIndices, values));
+
+    // When
+    Matrix result = matrixOperation.multiply(a, a);
+
+    // Then
+    assertThat(result.getStorage() instanceof SparseMatrixStorage, equalTo(true));
+    assertThat(((SparseMatrixStorage) result.getStorage()).getNonZeroCount(), equalTo(3 * n - 3));
+    assertThat(result.getValueAtPosition(5000, 5000), equalTo(new Rational(1L, 1L)));
+    assertThat(result.getValueAtPosition(5000, 5001), equalTo(new Rational(1L, 1L)));
+    assertThat(result.getValueAtPosition(5000, 5002), equalTo(new Rational(1L, 4L)));
+    assertThat(result.getValueAtPosition(5001, 5000), equalTo(new Rational(0L, 1L)));
+  }
+
+  @Test
+  public void solveSparseSystemWithReordering() {
+    // Given
+    int n = 300;
+    Random random = new Random(83L);
+    int[] shuffle = new int[n];
+    for (int i = 0; i < n; ++i) {
+      int j = random.nextInt(i + 1);
+      shuffle[i] = shuffle[j];
+      shuffle[j] = i;
+    }
+
+    // Tridiagonal system with its equations and unknowns shuffled, so the bandwidth is large
+    Rational[][] value = new Rational[n][n];
+    Rational[][] v = new Rational[1][n];
+    for (int r = 0; r < n; ++r) {
+      Arrays.fill(value[r], new Rational(0L, 1L));
+    }
+    for (int r = 0; r < n; ++r) {
+      value[shuffle[r]][shuffle[r]] = new Rational(random.nextInt(5) + 3, 2L);
+      if (r > 0) {
+        value[shuffle[r]][shuffle[r - 1]] = new Rational(-1L, random.nextInt(3) + 1);
+      }
+      if (r + 1 < n) {
+        value[shuffle[r]][shuffle[r + 1]] = new Rational(random.nextInt(3) - 1, 1L);
+      }
+      v[0][r] = new Rational(random.nextInt(11) - 5, 1L);
+    }
+
+    Matrix a = new Matrix(value);
+    ExecutionStatistics statistics = ExecutionStatistics.getInstance();
+    statistics.reset();
+
+    // When
+    Matrix result = matrixOperation.solveLinearSystem(a, new Matrix(v));
+
+    // Then
+    assertThat(a.getStorage() instanceof SparseMatrixStorage, equalTo(true));
+    Matrix product = matrixOperation.multiply(a, matrixOperation.transpose(result));
+    for (int r = 0; r < n; ++r) {
+      assertThat(product.getValueAtPosition(r, 0), equalTo(v[0][r]));
+    }
+    assertThat(statistics.get("sparse.solves"), equalTo(1L));
+    assertThat(statistics.get("sparse.bandwidth.ordered") < 4L, equalTo(true));
+    assertThat(statistics.get("sparse.bandwidth.original") > 100L, equalTo(true));
+  }
+
+  @Test
+  public void iterativeSolversApproximateExactSolution() {
+    // Given
+    int n = 50;
+    Rational[][] value = new Rational[n][n];
+    Rational[][] v = new Rational[1][n];
+    for (int r = 0; r < n; ++r) {
+      for (int c = 0; c < n; ++c) {
+        value[r][c] = new Rational(r == c ? 4L : Math.abs(r - c) == 1 ? -1L : 0L, 1L);
+      }
+      v[0][r] = new Rational(r % 7 - 3, 2L);
+    }
+
+    Matrix a = new Matrix(value);
+    Matrix expected = matrixOperation.solveLinearSystem(a, new Matrix(v));
+    ExecutionStatistics statistics = ExecutionStatistics.getInstance();
+
+    for (IterativeSolver.Method method : IterativeSolver.Method.values()) {
+      statistics.reset();
+
+      // When
+      Matrix result = matrixOperation.solveIteratively(a, new Matrix(v), method,
+          new Rational(1L, 10000000000L), new Rational(1000L, 1L));
+
+      // Then
+      for (int i = 0; i < n; ++i) {
+        assertThat(Math.abs(result.getDoubleValue()[0][i] - expected.getDoubleValue()[0][i])
+            < 1e-8, equalTo(true));
+      }
+      assertThat(statistics.get("iterative.iterations") > 0L, equalTo(true));
+      assertThat(statistics.getValue("iterative.residual") <= 1e-10, equalTo(true));
+    }
+  }
+
+  @Test
+  public void structureIsDetected() {
+    // Given
+    Matrix upper = new Matrix(new Rational[][] {
+        {new Rational(2L, 1L), new Rational(1L, 3L), new Rational(0L, 1L)},
+        {new Rational(0L, 1L), new Rational(-1L, 1L), new Rational(5L, 1L)},
+        {new Rational(0L, 1L), new Rational(0L, 1L), new Rational(4L, 7L)}});
+    Matrix symmetric = new Matrix(new Rational[][] {
+        {new Rational(2L, 1L), new Rational(1L, 3L)},
+        {new Rational(2L, 6L), new Rational(1L, 1L)}});
+
+    // When
+    MatrixStructure upperStructure = upper.getStructure();
+    MatrixStructure symmetricStructure = symmetric.getStructure();
+
+    // Then
+    assertThat(upperStructure.isUpperTriangular(), equalTo(true));
+    assertThat(upperStructure.isLowerTriangular(), equalTo(false));
+    assertThat(upperStructure.isTridiagonal(), equalTo(true));
+    assertThat(upperStructure.isSymmetric(), equalTo(false));
+    assertThat(upperStructure.getUpperBandwidth(), equalTo(1));
+    assertThat(symmetricStructure.isSymmetric(), equalTo(true));
+    assertThat(symmetricStructure.isDiagonal(), equalTo(false));
+    assertThat(new Matrix(new Rational[][] {
+        {new Rational(1L, 1L), new Rational(0L, 1L)},
+        {new Rational(0L, 1L), new Rational(1L, 1L)}}).getStructure().isIdentity(), equalTo(true));
+  }
+
+  @Test
+  public void structuredFastPathsMatchGeneralAlgorithms() {
+    // Given
+    int n = 12;
+    Random random = new Random(97L);
+    Rational[][] upperValue = new Rational[n][n];
+    Rational[][] diagonalValue = new Rational[n][n];
+    Rational[][] tridiagonalValue = new Rational[n][n];
+    Rational[][] v = new Rational[1][n];
+
+    for (int r = 0; r < n; ++r) {
+      for (int c = 0; c < n; ++c) {
+        Rational element = new Rational(random.nextInt(9) + 1, random.nextInt(4) + 1);
+        Rational zero = new Rational(0L, 1L);
+
+        upperValue[r][c] = c >= r ? element : zero;
+        diagonalValue[r][c] = c == r ? element : zero;
+        tridiagonalValue[r][c] = Math.abs(c - r) <= 1 ? element : zero;
+      }
+      v[0][r] = new Rational(random.nextInt(11) - 5, 1L);
+    }
+
+    Matrix upper = new Matrix(upperValue);
+    Matrix diagonal = new Matrix(diagonalValue);
+    Matrix tridiagonal = new Matrix(tridiagonalValue);
+
+    // When
+    Rational determinant = matrixOperation.determinant(upper);
+    Matrix inverse = matrixOperation.inverse(diagonal);
+    Matrix upperSolution = matrixOperation.solveLinearSystem(upper, new Matrix(v));
+    Matrix tridiagonalSolution = matrixOperation.solveLinearSystem(tridiagonal, new Matrix(v));
+
+    // Then
+    assertThat(determinant, equalTo(LUDecomposition.decompose(upper).determinant()));
+    assertMatrixEquals(inverse, LUDecomposition.decompose(diagonal).inverse());
+    assertMatrixEquals(upperSolution, matrixOperation.solveWithDecomposition(
+        LUDecomposition.decompose(upper), new Matrix(v)));
+    assertMatrixEquals(tridiagonalSolution, matrixOperation.solveWithDecomposition(
+        LUDecomposition.decompose(tridiagonal), new Matrix(v)));
+  }
+
+  @Test(expected = InvalidOperationParameterRuntimeError.class)
+  public void structuredSolveRejectsNearlySingularMatrix() {
+    // Given
+    Matrix upper = new Matrix(new Rational[][] {
+        {new Rational(1L, 1L), new Rational(1L, 1L)},
+        {new Rational(0L, 1L), new Rational(1L, 1000000000000L)}});
+
+    // When
+    matrixOperation.solveLinearSystem(upper, matrix(new long[][] {{1, 1}}, 1));
+  }
+
+  @Test
+  public void multiplyInTiles() {
+    // Given
+    Matrix a = randomMatrix(10, 53L);
+    Matrix b = randomMatrix(10, 54L);
+
+    Matrix expected = matrixOperation.multiply(a, b);
+
+    ParallelExecution parallelExecution = ParallelExecution.getInstance();
+    int threshold = parallelExecution.getThreshold();
+    int tileSize = matrixOperation.getMultiplyTileSize();
+
+    // When
+    parallelExecution.setThreshold(1);
+    matrixOperation.setMultiplyTileSize(3);
+    Matrix result;
+    try {
+      result = matrixOperation.multiply(a, b);
+    } finally {
+      parallelExecution.setThreshold(threshold);
+      matrixOperation.setMultiplyTileSize(tileSize);
+    }
+
+    // Then
+    for (int r = 0; r < 10; ++r) {
+      for (int c = 0; c < 10; ++c) {
+        assertThat(result.getValueAtPosition(r, c), equalTo(expected.getValueAtPosition(r, c)));
+      }
+    }
+  }
+
+  @Test
+  public void multiplyWithLongOverflow() {
+    // Given
+    Matrix m = matrix(new long[][] {{Long.MAX_VALUE / 2, 1}, {3, Long.MAX_VALUE / 3}}, 1);
+
+    BigInteger big = BigInteger.valueOf(Long.MAX_VALUE / 2);
+
+    // When
+    Matrix result = matrixOperation.multiply(m, m);
+
+    // Then
+    assertThat(result.getStorage() instanceof LongMatrixStorage, equalTo(false));
+    assertThat(result.getValueAtPosition(0, 0),
+        equalTo(new Rational(big.multiply(big).add(BigInteger.valueOf(3L)), BigInteger.ONE)));
+  }
+
+  @Test
+  public void commonDenominatorArithmetic() {
+    // Given
+    BigInteger big = BigInteger.ONE.shiftLeft(70);
+    BigInteger three = BigInteger.valueOf(3L);
+
+    Matrix m = new Matrix(new Rational[][] {
+        {new Rational(big, three), new Rational(1L, 3L)},
+        {new Rational(-2L, 1L), new Rational(big.negate(), BigInteger.ONE)}});
+
+    RationalOperation rationalOperation = RationalOperation.getInstance();
+
+    // When
+    Matrix sum = matrixOperation.subtract(matrixOperation.add(m, m), m);
+    Matrix product = matrixOperation.multiply(m, m);
+
+    // Then
+    assertThat(m.getStorage() instanceof IntegerMatrixStorage, equalTo(true));
+    assertThat(product.getStorage() instanceof IntegerMatrixStorage, equalTo(true));
+    for (int r = 0; r < 2; ++r) {
+      for (int c = 0; c < 2; ++c) {
+        Rational expected = rationalOperation.add(
+            rationalOperation.multiply(m.getValueAtPosition(r, 0), m.getValueAtPosition(0, c)),
+            rationalOperation.multiply(m.getValueAtPosition(r, 1), m.getValueAtPosition(1, c)));
+
+        assertThat(sum.getValueAtPosition(r, c), equalTo(m.getValueAtPosition(r, c)));
+        assertThat(product.getValueAtPosition(r, c), equalTo(expected));
+      }
+    }
+  }
+
+  @Test
+  public void symmetricFactorizationsMatchLU() {
+    // Given
+    Matrix b = randomMatrix(8, 71L);
+    Matrix m = matrixOperation.add(matrixOperation.multiply(matrixOperation.transpose(b), b),
+        matrix(new long[][] {
+            {1, 0, 0, 0, 0, 0, 0, 0}, {0, 1, 0, 0, 0, 0, 0, 0}, {0, 0, 1, 0, 0, 0, 0, 0},
+            {0, 0, 0, 1, 0, 0, 0, 0}, {0, 0, 0, 0, 1, 0, 0, 0}, {0, 0, 0, 0, 0, 1, 0, 0},
+            {0, 0, 0, 0, 0, 0, 1, 0}, {0, 0, 0, 0, 0, 0, 0, 1}}, 1));
+    Matrix v = new Matrix(new Rational[][] {randomMatrix(8, 72L).getValue()[0]});
+    Matrix indefinite = matrix(new long[][] {{0, 1}, {1, 0}}, 1);
+
+    LUDecomposition lu = LUDecomposition.decompose(m);
+
+    // When
+    Matrix ldl = matrixOperation.decomposeSymmetric(m);
+    Matrix cholesky = matrixOperation.cholesky(m);
+    Matrix solution = matrixOperation.solveSymmetric(m, v);
+    Matrix swapped = matrixOperation.solveSymmetric(indefinite,
+        matrix(new long[][] {{2, 3}}, 1));
+
+    // Then
+    assertThat(m.getStructure().isSymmetric(), equalTo(true));
+    assertMatrixEquals(solution, matrixOperation.solveWithDecomposition(lu, v));
+    assertThat(matrixOperation.determinant(m), equalTo(lu.determinant()));
+    assertMatrixEquals(matrixOperation.inverse(m), lu.inverse());
+    assertMatrixEquals(swapped, matrix(new long[][] {{3, 2}}, 1));
+    assertThat(LDLDecomposition.decomposeNonSingular(matrix(new long[][] {{1, 1}, {1, 1}}, 1),
+        new Rational(0L, 1L)) == null, equalTo(true));
+
+    RationalOperation rationalOperation = RationalOperation.getInstance();
+    for (int r = 0; r < 8; ++r) {
+      for (int c = 0; c <= r; ++c) {
+        // (L * D * L^T)[r][c] and (L * L^T)[r][c] for the Cholesky factor
+        Rational sum = new Rational(0L, 1L);
+        double choleskySum = 0.0;
+
+        for (int k = 0; k <= c; ++k) {
+          Rational lr = k == r ? new Rational(1L, 1L) : ldl.getValueAtPosition(r, k);
+          Rational lc = k == c ? new Rational(1L, 1L) : ldl.getValueAtPosition(c, k);
+
+          sum = rationalOperation.add(sum, rationalOperation.multiply(
+              rationalOperation.multiply(lr, ldl.getValueAtPosition(k, k)), lc));
+          choleskySum += cholesky.getValueAtPosition(r, k).getValue()
+              * cholesky.getValueAtPosition(c, k).getValue();
+        }
+
+        assertThat(sum, equalTo(m.getValueAtPosition(r, c)));
+        assertThat(Math.abs(choleskySum - m.getValueAtPosition(r, c).getValue()) < 1e-9,
+            equalTo(true));
+      }
+    }
+  }
+
+  @Test
+  public void doubleModeApproximatesExactSolution() {
+    // Given
+    Matrix m = randomMatrix(10, 61L);
+    Matrix v = new Matrix(new Rational[][] {randomMatrix(10, 62L).getValue()[0]});
+
+    Matrix expected = matrixOperation.solveLinearSystem(m, v);
+
+    // When
+    matrixOperation.setNumericMode(MatrixOperation.NumericMode.DOUBLE);
+    Matrix result;
+    try {
+      result = matrixOperation.solveLinearSystem(m, v);
+    } finally {
+      matrixOperation.setNumericMode(MatrixOperation.NumericMode.EXACT);
+    }
+
+    // Then
+    assertThat(result.getStorage() instanceof DoubleMatrixStorage, equalTo(true));
+    for (int c = 0; c < 10; ++c) {
+      double error = result.getValueAtPosition(0, c).getValue()
+          - expected.getValueAtPosition(0, c).getValue();
+      assertThat(Math.abs(error) < 1e-9, equalTo(true));
+    }
+  }
+
+  @Test
+  public void hybridSolverCertifiesOrFallsBack() {
+    // Given
+    Matrix simple = matrix(new long[][] {{4, 1, 0}, {1, 4, 1}, {0, 1, 4}}, 1);
+    Rational[][] hilbert = new Rational[12][12];
+    Rational[] ones = new Rational[12];
+
+    for (int r = 0; r < 12; ++r) {
+      for (int c = 0; c < 12; ++c) {
+        hilbert[r][c] = new Rational(1L, r + c + 1);
+      }
+      ones[r] = new Rational(1L, 1L);
+    }
+
+    HybridSolver hybridSolver = HybridSolver.getInstance();
+    LongAdder rejected = ExecutionStatistics.getInstance().counter("hybrid.rejected");
+    Rational[] simpleExpected = LUDecomposition.decompose(simple).solve(simple.getValue()[0]);
+    double conditionLimit = hybridSolver.getConditionLimit();
+
+    // When
+    long rejectedBefore = rejected.sum();
+    Rational[] simpleResult = hybridSolver.solve(simple.getValue(), simple.getValue()[0]);
+    Rational[] hilbertResult = hybridSolver.solve(hilbert, ones);
+    Rational[][] hilbertInverse = hybridSolver.inverse(hilbert);
+    Rational[] limitedResult;
+    try {
+      hybridSolver.setConditionLimit(1.0);
+      limitedResult = hybridSolver.solve(simple.getValue(), simple.getValue()[0]);
+    } finally {
+      hybridSolver.setConditionLimit(conditionLimit);
+    }
+
+    // Then
+    assertThat(simpleResult != null, equalTo(true));
+    for (int c = 0; c < 3; ++c) {
+      assertThat(simpleResult[c], equalTo(simpleExpected[c]));
+    }
+    assertThat(hilbertResult == null, equalTo(true));
+    assertThat(hilbertInverse == null, equalTo(true));
+    assertThat(limitedResult == null, equalTo(true));
+    assertThat(rejected.sum() - rejectedBefore, equalTo(3L));
+  }
+
+  @Test
+  public void powerByRepeatedSquaring() {
+    // Given
+    Matrix fibonacci = matrix(new long[][] {{1, 1}, {1, 0}}, 1);
+    Matrix m = randomMatrix(4, 81L);
+
+    // When
+    Matrix result = matrixOperation.power(fibonacci, new Rational(90L, 1L));
+    Matrix inverse = matrixOperation.power(m, new Rational(-3L, 1L));
+
+    // Then
+    assertThat(result.getValueAtPosition(0, 1), equalTo(new Rational(2880067194370816120L, 1L)));
+    assertIdentity(
+        matrixOperation.multiply(inverse, matrixOperation.power(m, new Rational(3L, 1L))));
+    assertIdentity(matrixOperation.power(m, new Rational(0L, 1L)));
+  }
+
+  static void assertIdentity(Matrix m) {
+    for (int r = 0; r < m.getRowNum(); ++r) {
+      for (int c = 0; c < m.getColumnNum(); ++c) {
+        assertThat(m.getValueAtPosition(r, c), equalTo(new Rational(r == c ? 1L : 0L, 1L)));
+      }
+    }
+  }
+
+  static Matrix matrix(long[][] numerators, long denominator) {
+    Rational[][] value = new Rational[numerators.length][numerators[0].length];
+
+    for (int r = 0; r < numerators.length; ++r) {
+      for (int c = 0; c < numerators[r].length; ++c) {
+        value[r][c] = new Rational(numerators[r][c], denominator);
+      }
+    }
+
+    return new Matrix(value);
+  }
+
+  static Matrix randomMatrix(int n, long seed) {
+    Random random = new Random(seed);
+    Rational[][] value = new Rational[n][n];
+
+    for (int r = 0; r < n; ++r) {
+      for (int c = 0; c < n; ++c) {
+        value[r][c] = new Rational(random.nextInt(41) - 20, random.nextInt(9) + 1);
+      }
+    }
+
+    return new Matrix(value);
+  }
+
+  private static void assertMatrixEquals(Matrix actual, Matrix expected) {
+    assertThat(actual.getRowNum(), equalTo(expected.getRowNum()));
+    assertThat(actual.getColumnNum(), equalTo(expected.getColumnNum()));
+
+    for (int r = 0; r < expected.getRowNum(); ++r) {
+      for (int c = 0; c < expected.getColumnNum(); ++c) {
+        assertThat(actual.getValueAtPosition(r, c), equalTo(expected.getValueAtPosition(r, c)));
+      }
+    }
+  }
+}
@@ -222,4 +222,117 @@ public class RationalOperationTest {
     assertThat(result.getNumerator(), equalTo(expected.getNumerator()));
     assertThat(result.getDenominator(), equalTo(expected.getDenominator()));
   }
+
+  @Test
+  public void addWithLongOverflow() {
+    // Given
+    Rational a = new Rational(Long.MAX_VALUE, 1L);
+
+    Rational b = new Rational(Long.MAX_VALUE, 1L);
+
+    Rational expected = new Rational(
+        BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.valueOf(2L)), BigInteger.ONE);
+
+    // When
+    Rational result = rationalOperation.add(a, b);
+
+    // Then
+    assertThat(result.getNumerator(), equalTo(expected.getNumerator()));
+    assertThat(result.getDenominator(), equalTo(expected.getDenominator()));
+  }
+
+  @Test
+  public void multiplyWithLongOverflow() {
+    // Given
+    Rational a = new Rational(Long.MAX_VALUE, 3L);
+
+    Rational b = new Rational(-5L, Long.MAX_VALUE);
+
+    Rational expected = new Rational(
+        BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.valueOf(-5L)),
+        BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.valueOf(3L)));
+
+    // When
+    Rational result = rationalOperation.multiply(a, b);
+
+    // Then
+    assertThat(result.getNumerator(), equalTo(expected.getNumerator()));
+    assertThat(result.getDenominator(), equalTo(expected.getDenominator()));
+  }
+
+  @Test
+  public void powerWithNegativeExponent() {
+    // Given
+    Rational a = new Rational(-2L, 3L);
+    Rational b = new Rational(-3L, 1L);
+
+    // When
+    Rational result = rationalOperation.power(a, b);
+
+    // Then
+    assertThat(result, equalTo(new Rational(-27L, 8L)));
+  }
+
+  @Test
+  public void powerWithLargeResult() {
+    // Given
+    Rational a = new Rational(3L, 2L);
+    Rational b = new Rational(100L, 1L);
+
+    // When
+    Rational result = rationalOperation.power(a, b);
+
+    // Then
+    assertThat(result, equalTo(new Rational(BigInteger.valueOf(3L).pow(100),
+        BigInteger.ONE.shiftLeft(100))));
+  }
+
+  @Test
+  public void powerWithExactRoot() {
+    // Given
+    Rational a = new Rational(-8L, 27L);
+    Rational b = new Rational(2L, 3L);
+
+    // When
+    Rational result = rationalOperation.power(a, b);
+
+    // Then
+    assertThat(result, equalTo(new Rational(4L, 9L)));
+  }
+
+  @Test
+  public void powerWithIrrationalResult() {
+    // Given
+    Rational a = new Rational(2L, 1L);
+    Rational b = new Rational(1L, 2L);
+
+    // When
+    Rational result = rationalOperation.power(a, b);
+
+    // Then
+    assertThat(Math.abs(result.getValue() - Math.sqrt(2.0)) < 1e-12, equalTo(true));
+  }
+
+  @Test
+  public void accumulatorMatchesSumOfProductsPastLongOverflow() {
+    // Given
+    Rational large = new Rational(Long.MAX_VALUE / 3L, 7L);
+    Rational[] a = {new Rational(1L, -2L), large, new Rational(0L, 1L), new Rational(5L, 6L)};
+    Rational[] b = {new Rational(3L, 4L), large, new Rational(9L, 1L), new Rational(-2L, 9L)};
+
+    Rational expected = new Rational(1L, 1L);
+    for (int i = 0; i < a.length; ++i) {
+      expected = rationalOperation.subtract(expected, rationalOperation.multiply(a[i], b[i]));
+    }
+
+    RationalAccumulator accumulator = new RationalAccumulator(new Rational(1L, 1L));
+
+    // When
+    for (int i = 0; i < a.length; ++i) {
+      accumulator.subtractProduct(a[i], b[i]);
+    }
+
+    // Then
+    assertThat(accumulator.toRational(), equalTo(expected));
+  }
 }
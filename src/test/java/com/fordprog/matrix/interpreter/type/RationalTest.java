@@ -0,0 +1,118 @@
+package com.fordprog.matrix.interpreter.type;
+
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+public class RationalTest {
+
+  @After
+  public void tearDown() {
+    Rational.setNormalization(Rational.Normalization.LAZY);
+    Rational.setReductionThreshold(64);
+    Rational.setMaxDenominator(1000000000000L);
+    Rational.setConversionTolerance(1e-12);
+  }
+
+  @Test
+  public void doubleConversionFindsSimpleFraction() {
+    // When
+    Rational third = new Rational(1.0 / 3.0);
+    Rational negative = new Rational(-2.0000000000000004);
+    Rational small = new Rational(3.7e-5);
+    Rational tiny = new Rational(1e-17);
+    Rational zero = new Rational(0.0);
+
+    // Then
+    assertThat(third, equalTo(new Rational(1L, 3L)));
+    assertThat(negative, equalTo(new Rational(-2L, 1L)));
+    assertThat(small, equalTo(new Rational(37L, 1000000L)));
+    assertThat(tiny, equalTo(new Rational(0L, 1L)));
+    assertThat(zero, equalTo(new Rational(0L, 1L)));
+  }
+
+  @Test
+  public void doubleConversionRespectsMaxDenominator() {
+    // Given
+    Rational.setMaxDenominator(1000L);
+
+    // When
+    Rational result = new Rational(Math.PI);
+
+    // Then
+    assertThat(result, equalTo(new Rational(355L, 113L)));
+  }
+
+  @Test
+  public void doubleConversionBoundsDenominatorOfSmallValues() {
+    // Given
+    double[] values = {1.234567e-9, -4.2e-12, 1e-300, Double.MIN_VALUE};
+
+    for (double value : values) {
+      // When
+      Rational result = new Rational(value).canonical();
+
+      // Then
+      assertThat(result.getDenominator().compareTo(
+          BigInteger.valueOf(Rational.getMaxDenominator())) <= 0, equalTo(true));
+      assertThat(Math.abs(result.getValue() - value) <= 1.0 / Rational.getMaxDenominator(),
+          equalTo(true));
+    }
+  }
+
+  @Test
+  public void eagerNormalizationReducesOnCreation() {
+    // Given
+    Rational.setNormalization(Rational.Normalization.EAGER);
+
+    // When
+    Rational result = new Rational(BigInteger.valueOf(12L), BigInteger.valueOf(-24L));
+
+    // Then
+    assertThat(result.getNumerator(), equalTo(BigInteger.valueOf(-1L)));
+    assertThat(result.getDenominator(), equalTo(BigInteger.valueOf(2L)));
+  }
+
+  @Test
+  public void lazyNormalizationKeepsSmallFractions() {
+    // When
+    Rational result = new Rational(12L, 24L);
+
+    // Then
+    assertThat(result.getNumerator(), equalTo(BigInteger.valueOf(12L)));
+    assertThat(result.getDenominator(), equalTo(BigInteger.valueOf(24L)));
+  }
+
+  @Test
+  public void lazyNormalizationReducesAboveThreshold() {
+    // Given
+    Rational.setReductionThreshold(8);
+
+    // When
+    Rational result = new Rational(300L, 900L);
+
+    // Then
+    assertThat(result.getNumerator(), equalTo(BigInteger.ONE));
+    assertThat(result.getDenominator(), equalTo(BigInteger.valueOf(3L)));
+  }
+
+  @Test
+  public void equalityUsesCanonicalForm() {
+    // Given
+    Rational a = new Rational(BigInteger.valueOf(-56L), BigInteger.valueOf(180L));
+
+    Rational b = new Rational(14L, -45L);
+
+    // Then
+    assertThat(a.isEqual(b), equalTo(true));
+    assertThat(a.equals(b), equalTo(true));
+    assertThat(a.hashCode(), equalTo(b.hashCode()));
+    assertThat(a.toString(), equalTo("-14|45"));
+    assertThat(b.toString(), equalTo("-14|45"));
+  }
+}